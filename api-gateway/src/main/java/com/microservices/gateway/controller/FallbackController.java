@@ -14,7 +14,7 @@ import java.util.Map;
 @Slf4j
 public class FallbackController {
     
-    @GetMapping("/users")
+    @RequestMapping("/users")
     public ResponseEntity<Map<String, String>> userServiceFallback() {
         log.warn("User Service is unavailable - returning fallback response");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
@@ -24,7 +24,7 @@ public class FallbackController {
                 ));
     }
     
-    @GetMapping("/products")
+    @RequestMapping("/products")
     public ResponseEntity<Map<String, String>> productServiceFallback() {
         log.warn("Product Service is unavailable - returning fallback response");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
@@ -34,7 +34,7 @@ public class FallbackController {
                 ));
     }
     
-    @GetMapping("/orders")
+    @RequestMapping("/orders")
     public ResponseEntity<Map<String, String>> orderServiceFallback() {
         log.warn("Order Service is unavailable - returning fallback response");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
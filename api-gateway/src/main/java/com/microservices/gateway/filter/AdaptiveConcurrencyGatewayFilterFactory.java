@@ -0,0 +1,174 @@
+package com.microservices.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sheds load on a route once it has more requests in flight than its
+ * {@link AdaptiveConcurrencyLimiter} allows. Shed requests are answered
+ * immediately by forwarding to {@code fallbackPath} (503 from
+ * FallbackController) with Retry-After, instead of queueing behind a
+ * saturated backend. GET and HEAD requests are admitted ahead of writes.
+ *
+ * Place it after filters that answer without the backend (response cache,
+ * request coalescing) so their fast responses do not skew the latency signal.
+ * Setting gateway.adaptive-concurrency.enabled=false turns the filter into a
+ * pass-through on every route, for comparing behaviour without a limit.
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+    
+    private final ObjectProvider<DispatcherHandler> dispatcherHandler;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, RouteLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    
+    public AdaptiveConcurrencyGatewayFilterFactory(ObjectProvider<DispatcherHandler> dispatcherHandler,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${gateway.adaptive-concurrency.enabled:true}") boolean enabled) {
+        super(Config.class);
+        this.dispatcherHandler = dispatcherHandler;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+        if (!enabled) {
+            log.warn("Adaptive concurrency limit disabled on route {}", routeId);
+            return (exchange, chain) -> chain.filter(exchange);
+        }
+        
+        // Kept across route refreshes so the learned limit survives, unless the route's limiter settings changed
+        LimiterSettings settings = LimiterSettings.of(config);
+        AdaptiveConcurrencyLimiter limiter = limiters.compute(routeId, (id, existing) -> {
+            if (existing != null && existing.settings().equals(settings)) {
+                return existing;
+            }
+            if (existing != null) {
+                log.info("Limiter settings of route {} changed, starting a new limit", id);
+                existing.gauges().forEach(meterRegistry::remove);
+            }
+            return newLimiter(id, settings);
+        }).limiter();
+        
+        return (exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            boolean read = HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method);
+            if (!limiter.tryAcquire(read)) {
+                counter(routeId, read ? "read" : "write").increment();
+                log.debug("Shedding {} {} on route {} at limit {}", method, exchange.getRequest().getPath(),
+                        routeId, limiter.getLimit());
+                return shed(exchange, config);
+            }
+            
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    limiter.release();
+                    return;
+                }
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                boolean dropped = signal == SignalType.ON_ERROR || status != null
+                        && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                        || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+                limiter.release(System.nanoTime() - start, dropped);
+            });
+        };
+    }
+    
+    private Mono<Void> shed(ServerWebExchange exchange, Config config) {
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        if (config.getFallbackPath() == null) {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }
+        // Clear routing state so the forwarded request is routed afresh, as the CircuitBreaker fallback does
+        ServerWebExchangeUtils.reset(exchange);
+        ServerHttpRequest fallback = exchange.getRequest().mutate().path(config.getFallbackPath()).build();
+        return dispatcherHandler.getObject().handle(exchange.mutate().request(fallback).build());
+    }
+    
+    private RouteLimiter newLimiter(String routeId, LimiterSettings settings) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings.initialLimit(),
+                settings.minLimit(), settings.maxLimit(), settings.writeRatio(), settings.windowSize());
+        Gauge limit = Gauge.builder("gateway.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge inFlight = Gauge.builder("gateway.concurrency.in_flight", limiter,
+                        AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Requests currently admitted to the backend")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return new RouteLimiter(settings, limiter, List.of(limit, inFlight));
+    }
+    
+    private Counter counter(String routeId, String priority) {
+        return counters.computeIfAbsent(routeId + "|" + priority, key -> Counter.builder("gateway.concurrency.shed")
+                .description("Requests rejected by the adaptive concurrency limit")
+                .tag("route", routeId)
+                .tag("priority", priority)
+                .register(meterRegistry));
+    }
+    
+    private record LimiterSettings(int initialLimit, int minLimit, int maxLimit, double writeRatio, int windowSize) {
+        
+        static LimiterSettings of(Config config) {
+            return new LimiterSettings(config.getInitialLimit(), config.getMinLimit(), config.getMaxLimit(),
+                    config.getWriteRatio(), config.getWindowSize());
+        }
+    }
+    
+    private record RouteLimiter(LimiterSettings settings, AdaptiveConcurrencyLimiter limiter, List<Meter> gauges) {
+    }
+    
+    @Data
+    public static class Config implements HasRouteId {
+        
+        private String routeId;
+        
+        // Path the gateway forwards shed requests to; a bare 503 when unset
+        private String fallbackPath;
+        
+        private int initialLimit = 20;
+        
+        private int minLimit = 5;
+        
+        private int maxLimit = 500;
+        
+        // Share of the limit writes may use before they are shed
+        private double writeRatio = 0.8;
+        
+        // Completed requests per limit update
+        private int windowSize = 50;
+    }
+}
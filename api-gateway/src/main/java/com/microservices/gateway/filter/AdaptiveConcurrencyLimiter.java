@@ -0,0 +1,116 @@
+package com.microservices.gateway.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit for one route that adapts to observed latency, following
+ * the gradient2 approach. Round-trip times are averaged per window and
+ * compared with a long-term average: while latency stays flat the limit
+ * grows by about sqrt(limit) per window, and once requests start queueing in
+ * the backend the ratio drops below one and pulls the limit down. A window
+ * with failures or timeouts backs the limit off multiplicatively.
+ *
+ * Reads may use the whole limit; writes only {@code writeRatio} of it, so
+ * writes are shed first as the route saturates.
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double LONG_RTT_ALPHA = 2.0 / (600 + 1);
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final double writeRatio;
+    private final int windowSize;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    
+    // Window state, guarded by this
+    private double longRttNanos;
+    private long windowRttSum;
+    private int windowCount;
+    private boolean windowDropped;
+    
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double writeRatio, int windowSize) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.writeRatio = writeRatio;
+        this.windowSize = windowSize;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+    }
+    
+    /** Takes a slot if the request fits under the limit for its priority. */
+    public boolean tryAcquire(boolean read) {
+        int allowed = read ? (int) limit : Math.max(1, (int) (limit * writeRatio));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    /** Frees a slot without feeding the limit, e.g. when the client went away. */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+    
+    /** Frees a slot and records how the request went. */
+    public void release(long rttNanos, boolean dropped) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        onSample(rttNanos, dropped, inFlightAtCompletion);
+    }
+    
+    private synchronized void onSample(long rttNanos, boolean dropped, int inFlightAtCompletion) {
+        windowDropped |= dropped;
+        if (!dropped) {
+            windowRttSum += rttNanos;
+        }
+        if (++windowCount < windowSize) {
+            return;
+        }
+        
+        int samples = windowCount;
+        long rttSum = windowRttSum;
+        boolean backOff = windowDropped;
+        windowCount = 0;
+        windowRttSum = 0;
+        windowDropped = false;
+        
+        if (backOff) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+        
+        double shortRtt = (double) rttSum / samples;
+        longRttNanos = longRttNanos == 0 ? shortRtt : longRttNanos * (1 - LONG_RTT_ALPHA) + shortRtt * LONG_RTT_ALPHA;
+        if (longRttNanos / shortRtt > 2) {
+            // Latency recovered well below the long-term average; let it catch up
+            longRttNanos *= 0.95;
+        }
+        
+        // Not using the current limit, so latency says nothing about raising it
+        if (inFlightAtCompletion < limit / 2) {
+            return;
+        }
+        
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        double smoothed = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.min(maxLimit, Math.max(minLimit, smoothed));
+    }
+    
+    public int getLimit() {
+        return (int) limit;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,31 @@
+package com.microservices.gateway.filter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * A response held by {@link ResponseCache}. It is served without contacting
+ * the backend until {@code freshUntilNanos}; after that, entries with an ETag
+ * are revalidated with If-None-Match until the cache evicts them.
+ */
+public record CachedResponse(
+        String path,
+        HttpStatusCode status,
+        HttpHeaders headers,
+        byte[] body,
+        String etag,
+        long storedAtNanos,
+        long freshUntilNanos) {
+    
+    public boolean isFresh(long nowNanos) {
+        return nowNanos < freshUntilNanos;
+    }
+    
+    public long ageSeconds(long nowNanos) {
+        return (nowNanos - storedAtNanos) / 1_000_000_000L;
+    }
+    
+    public CachedResponse refreshed(long nowNanos, long freshnessNanos) {
+        return new CachedResponse(path, status, headers, body, etag, nowNanos, nowNanos + freshnessNanos);
+    }
+}
@@ -0,0 +1,121 @@
+package com.microservices.gateway.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Purges cached responses of another route after a successful write through
+ * this route. Used where a write changes data another route serves from
+ * {@link ResponseCache}, e.g. placing an order changes product stock.
+ * <p>
+ * Only the resources named by the {@code idField} values in the write's JSON
+ * response are purged, together with the collection's listings, which show
+ * the same data. Other cached resources are left alone. When the response
+ * cannot be read, the whole collection is purged.
+ */
+@Component
+@Slf4j
+public class PurgeResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<PurgeResponseCacheGatewayFilterFactory.Config> {
+    
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    
+    private final ResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    
+    public PurgeResponseCacheGatewayFilterFactory(ResponseCache responseCache, ObjectMapper objectMapper) {
+        super(Config.class);
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("collectionPath", "idField");
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        Pattern resourcePattern = Pattern.compile(Pattern.quote(config.getCollectionPath()) + "/(\\d+)(?:/.*)?");
+        return (exchange, chain) -> {
+            if (SAFE_METHODS.contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange);
+            }
+            String path = exchange.getRequest().getPath().value();
+            ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    HttpStatusCode status = getStatusCode();
+                    if (status == null || !status.is2xxSuccessful()) {
+                        return super.writeWith(body);
+                    }
+                    return super.writeWith(ResponseCapture.tee(body, responseCache.maxEntryBytes(),
+                            captured -> purgeWritten(path, captured, config, resourcePattern),
+                            () -> purgeCollection(path, config)));
+                }
+            };
+            return chain.filter(exchange.mutate().response(response).build());
+        };
+    }
+    
+    private void purgeWritten(String path, byte[] body, Config config, Pattern resourcePattern) {
+        Set<String> ids;
+        try {
+            ids = objectMapper.readTree(body).findValues(config.getIdField()).stream()
+                    .filter(JsonNode::isValueNode)
+                    .map(JsonNode::asText)
+                    .collect(Collectors.toSet());
+        } catch (IOException e) {
+            log.warn("Could not read ids from response to {}: {}", path, e.getMessage());
+            purgeCollection(path, config);
+            return;
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        
+        String collectionPath = config.getCollectionPath();
+        Predicate<String> affected = cachedPath -> {
+            Matcher cachedResource = resourcePattern.matcher(cachedPath);
+            return cachedResource.matches() ? ids.contains(cachedResource.group(1)) : cachedPath.startsWith(collectionPath);
+        };
+        log.info("Purging cached responses for {} {} after write to {}", collectionPath, ids, path);
+        responseCache.purge(affected);
+    }
+    
+    private void purgeCollection(String path, Config config) {
+        String collectionPath = config.getCollectionPath();
+        log.info("Purging all cached responses under {} after write to {}", collectionPath, path);
+        responseCache.purge(cachedPath -> cachedPath.startsWith(collectionPath));
+    }
+    
+    @Data
+    public static class Config {
+        
+        // Collection whose cached responses a write through this route can change, e.g. /api/products
+        private String collectionPath;
+        
+        // Response field naming the resources of that collection the write touched, e.g. productId
+        private String idField = "id";
+    }
+}
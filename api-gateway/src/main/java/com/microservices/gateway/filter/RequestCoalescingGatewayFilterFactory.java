@@ -0,0 +1,228 @@
+package com.microservices.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses concurrent identical GETs on a route into one upstream call.
+ *
+ * The first request for a key (route, path, query and the vary headers) is
+ * forwarded; requests arriving while it is in flight wait for its response
+ * and receive a copy, marked X-Coalesced: true. A request that would exceed
+ * {@code maxWaiters}, or whose leader produced no shareable response (a status
+ * other than 2xx or 304, error, cancellation, streaming or oversized body,
+ * Set-Cookie or private), is forwarded on its own, so a transient backend
+ * failure is retried by each waiter rather than fanned out to all of them.
+ */
+@Component
+@Slf4j
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+    
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        
+        Gauge.builder("gateway.coalescing.collapsed_ratio", this, RequestCoalescingGatewayFilterFactory::collapsedRatio)
+                .description("Share of coalescable GETs answered from another request's upstream call")
+                .register(meterRegistry);
+        Gauge.builder("gateway.coalescing.in_flight", inFlight, Map::size)
+                .description("Distinct upstream GETs currently shared by waiting requests")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxWaiters");
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                return chain.filter(exchange);
+            }
+            
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "unknown";
+            String key = coalescingKey(routeId, request, config);
+            
+            InFlight created = new InFlight();
+            InFlight existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                return lead(exchange, chain, key, created, routeId, config);
+            }
+            
+            if (existing.waiters.incrementAndGet() > config.getMaxWaiters()) {
+                existing.waiters.decrementAndGet();
+                record(routeId, "overflow");
+                return chain.filter(exchange);
+            }
+            return existing.result.asMono()
+                    .flatMap(shared -> {
+                        if (shared.isEmpty()) {
+                            record(routeId, "forwarded");
+                            return chain.filter(exchange);
+                        }
+                        record(routeId, "collapsed");
+                        return replay(exchange.getResponse(), shared.get());
+                    })
+                    .doFinally(signal -> existing.waiters.decrementAndGet());
+        };
+    }
+    
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, InFlight entry,
+                            String routeId, Config config) {
+        record(routeId, "forwarded");
+        LeaderResponse response = new LeaderResponse(exchange.getResponse(), key, entry, config);
+        return chain.filter(exchange.mutate().response(response).build())
+                .doFinally(signal -> finish(key, entry, null));
+    }
+    
+    /**
+     * Publishes the leader's outcome and retires the entry, so requests that
+     * arrive afterwards start a fresh upstream call. Only the first call for
+     * an entry has any effect.
+     */
+    private void finish(String key, InFlight entry, SharedResponse shared) {
+        inFlight.remove(key, entry);
+        entry.result.tryEmitValue(Optional.ofNullable(shared));
+    }
+    
+    private static Mono<Void> replay(ServerHttpResponse response, SharedResponse shared) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(shared.headers());
+        headers.setContentLength(shared.body().length);
+        headers.set(ResponseCapture.COALESCED_HEADER, "true");
+        response.setStatusCode(shared.status());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+    
+    private static String coalescingKey(String routeId, ServerHttpRequest request, Config config) {
+        StringBuilder key = new StringBuilder(routeId).append('|').append(request.getPath().value());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (String header : config.getVaryHeaders()) {
+            key.append('|').append(String.join(",", headers.getOrEmpty(header)));
+        }
+        return key.toString();
+    }
+    
+    private void record(String routeId, String outcome) {
+        if (outcome.equals("collapsed")) {
+            collapsed.increment();
+        } else {
+            forwarded.increment();
+        }
+        counters.computeIfAbsent(routeId + "|" + outcome, key -> Counter.builder("gateway.coalescing.requests")
+                .description("Coalescable GETs by how they reached the backend")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry))
+                .increment();
+    }
+    
+    private double collapsedRatio() {
+        double collapsedCount = collapsed.sum();
+        double total = collapsedCount + forwarded.sum();
+        return total == 0 ? 0 : collapsedCount / total;
+    }
+    
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+    
+    private static class InFlight {
+        
+        private final Sinks.One<Optional<SharedResponse>> result = Sinks.one();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+    
+    /**
+     * Streams the leader's response to its client and publishes a copy to the
+     * waiting requests as soon as the body is complete.
+     */
+    private class LeaderResponse extends ServerHttpResponseDecorator {
+        
+        private final String key;
+        private final InFlight entry;
+        private final Config config;
+        
+        LeaderResponse(ServerHttpResponse delegate, String key, InFlight entry, Config config) {
+            super(delegate);
+            this.key = key;
+            this.entry = entry;
+            this.config = config;
+        }
+        
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (!isShareable(status) || ResponseCapture.isPrivate(getHeaders())) {
+                finish(key, entry, null);
+                return super.writeWith(body);
+            }
+            
+            HttpHeaders headers = ResponseCapture.replayableHeaders(getHeaders());
+            return super.writeWith(ResponseCapture.tee(body, config.getMaxBodySize().toBytes(),
+                    captured -> finish(key, entry, new SharedResponse(status, headers, captured))));
+        }
+    }
+    
+    private static boolean isShareable(HttpStatusCode status) {
+        return status != null && (status.is2xxSuccessful() || status.value() == HttpStatus.NOT_MODIFIED.value());
+    }
+    
+    @Data
+    public static class Config {
+        
+        // Requests allowed to wait on one upstream call; the rest are forwarded
+        private int maxWaiters = 1000;
+        
+        // Responses larger than this are not shared
+        private DataSize maxBodySize = DataSize.ofMegabytes(1);
+        
+        // Request headers that can change the response and so must match to share it
+        private List<String> varyHeaders = List.of(
+                HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE,
+                HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+    }
+}
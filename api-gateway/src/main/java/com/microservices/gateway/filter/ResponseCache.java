@@ -0,0 +1,170 @@
+package com.microservices.gateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-memory store behind {@link ResponseCacheGatewayFilterFactory}, bounded by
+ * the total size of the cached bodies. Entries without an ETag are dropped when
+ * they go stale; entries with one are kept for stale-retention so they can be
+ * revalidated instead of refetched.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+    
+    // Purges remembered for deciding whether a read that overlapped them may still be stored
+    private static final int RECENT_PURGES = 256;
+    
+    private final Cache<String, CachedResponse> cache;
+    private final long maxEntryBytes;
+    private final long staleRetentionNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private final Deque<Purge> recentPurges = new ConcurrentLinkedDeque<>();
+    
+    private final Counter hits;
+    private final Counter revalidations;
+    private final Counter misses;
+    private final Counter bytesSaved;
+    private final Counter purges;
+    
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${gateway.response-cache.max-size:50MB}") DataSize maxSize,
+                         @Value("${gateway.response-cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                         @Value("${gateway.response-cache.stale-retention:5m}") Duration staleRetention) {
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.staleRetentionNanos = staleRetention.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+                        long freshness = Math.max(response.freshUntilNanos() - response.storedAtNanos(), 0);
+                        return response.etag() != null ? freshness + staleRetentionNanos : freshness;
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse response, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, response, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse response, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.revalidations = requestCounter(meterRegistry, "revalidated");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.bytesSaved = Counter.builder("gateway.response_cache.bytes_saved")
+                .description("Response body bytes served from the gateway cache instead of the backend")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("gateway.response_cache.hit_ratio", this, ResponseCache::hitRatio)
+                .description("Share of cacheable requests answered without a full backend response")
+                .register(meterRegistry);
+        this.purges = Counter.builder("gateway.response_cache.purges")
+                .description("Purges triggered by writes through the gateway")
+                .register(meterRegistry);
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gatewayResponses");
+    }
+    
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+    
+    /**
+     * Current purge generation. A response is only stored if no purge matching
+     * its path happened since its request started, so a read that raced a
+     * write cannot cache the pre-write state.
+     */
+    public long generation() {
+        return generation.get();
+    }
+    
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+    
+    public boolean accepts(long bodyBytes) {
+        return bodyBytes <= maxEntryBytes;
+    }
+    
+    public void put(String key, CachedResponse response, long requestGeneration) {
+        if (generation.get() == requestGeneration || !purgedSince(requestGeneration, response.path())) {
+            cache.put(key, response);
+        }
+    }
+    
+    /** Removes every entry whose path matches and invalidates matching reads still in flight. */
+    public void purge(Predicate<String> pathMatcher) {
+        recentPurges.addLast(new Purge(generation.incrementAndGet(), pathMatcher));
+        while (recentPurges.size() > RECENT_PURGES) {
+            recentPurges.pollFirst();
+        }
+        purges.increment();
+        cache.asMap().values().removeIf(response -> pathMatcher.test(response.path()));
+    }
+    
+    public void recordHit(long bodyBytes) {
+        hits.increment();
+        bytesSaved.increment(bodyBytes);
+    }
+    
+    public void recordRevalidation(long bodyBytes) {
+        revalidations.increment();
+        bytesSaved.increment(bodyBytes);
+    }
+    
+    public void recordMiss() {
+        misses.increment();
+    }
+    
+    // Reads older than the remembered purges are treated as overlapping one that matched
+    private boolean purgedSince(long requestGeneration, String path) {
+        Purge oldest = recentPurges.peekFirst();
+        if (oldest == null || oldest.generation() > requestGeneration + 1) {
+            return true;
+        }
+        return recentPurges.stream()
+                .anyMatch(purge -> purge.generation() > requestGeneration && purge.pathMatcher().test(path));
+    }
+    
+    private double hitRatio() {
+        double served = hits.count() + revalidations.count();
+        double total = served + misses.count();
+        return total == 0 ? 0 : served / total;
+    }
+    
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.response_cache.requests")
+                .description("Cacheable gateway requests by cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private record Purge(long generation, Predicate<String> pathMatcher) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.microservices.gateway.filter;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches successful GET responses of a route in {@link ResponseCache}.
+ *
+ * <ul>
+ *   <li>Freshness is the route TTL, shortened by the backend's max-age or
+ *       s-maxage; no-cache responses are stored but always revalidated, and
+ *       no-store or private responses are not stored.</li>
+ *   <li>Stale entries with an ETag are revalidated with If-None-Match, and a
+ *       304 from the backend is answered from the cache.</li>
+ *   <li>Clients sending a matching If-None-Match get a 304 from the gateway,
+ *       also when the entry was refetched because it had changed.</li>
+ *   <li>Requests carrying Authorization bypass the cache, since the backend
+ *       may answer them per caller.</li>
+ *   <li>A successful write through the route purges the written resource and
+ *       every listing under {@code collectionPath}; other resources stay cached.</li>
+ * </ul>
+ *
+ * Streaming media types are never buffered or cached. Responses carry
+ * X-Cache: HIT, REVALIDATED or MISS.
+ */
+@Component
+@Slf4j
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+    
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|[,\\s])max-age\\s*=\\s*\"?(\\d+)");
+    private static final Pattern S_MAXAGE = Pattern.compile("(?:^|[,\\s])s-maxage\\s*=\\s*\"?(\\d+)");
+    
+    private final ResponseCache responseCache;
+    
+    public ResponseCacheGatewayFilterFactory(ResponseCache responseCache) {
+        super(Config.class);
+        this.responseCache = responseCache;
+    }
+    
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl", "collectionPath");
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        Pattern resourcePattern = config.getCollectionPath() != null
+                ? Pattern.compile(Pattern.quote(config.getCollectionPath()) + "/(\\d+)(?:/.*)?")
+                : null;
+        
+        return (exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            if (HttpMethod.GET.equals(method)) {
+                return cachedGet(exchange, chain, config);
+            }
+            if (HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange).doOnSuccess(done -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (status != null && status.is2xxSuccessful()) {
+                    purgeAfterWrite(exchange.getRequest().getPath().value(), config, resourcePattern);
+                }
+            });
+        };
+    }
+    
+    private Mono<Void> cachedGet(ServerWebExchange exchange, GatewayFilterChain chain, Config config) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+            return chain.filter(exchange);
+        }
+        String key = cacheKey(request);
+        List<String> clientEtags = request.getHeaders().getIfNoneMatch();
+        long now = System.nanoTime();
+        
+        String requestCacheControl = request.getHeaders().getCacheControl();
+        boolean bypass = requestCacheControl != null
+                && (requestCacheControl.contains("no-cache") || requestCacheControl.contains("no-store"));
+        CachedResponse cached = bypass ? null : responseCache.get(key);
+        if (cached != null && cached.isFresh(now)) {
+            responseCache.recordHit(cached.body().length);
+            return writeCached(exchange.getResponse(), cached, clientEtags, "HIT", now);
+        }
+        
+        ServerWebExchange forwarded = exchange;
+        if (cached != null) {
+            // Stale but validatable: ask the backend whether our copy is still current
+            forwarded = exchange.mutate()
+                    .request(builder -> builder.headers(headers -> {
+                        headers.setIfNoneMatch(cached.etag());
+                        headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    }))
+                    .build();
+        }
+        
+        CachingResponse response = new CachingResponse(forwarded.getResponse(), key,
+                request.getPath().value(), cached, clientEtags, responseCache.generation(), config);
+        return chain.filter(forwarded.mutate().response(response).build());
+    }
+    
+    private void purgeAfterWrite(String path, Config config, Pattern resourcePattern) {
+        if (resourcePattern == null) {
+            log.info("Purging all cached responses after write to {}", path);
+            responseCache.purge(cachedPath -> true);
+            return;
+        }
+        
+        String collectionPath = config.getCollectionPath();
+        Matcher written = resourcePattern.matcher(path);
+        Predicate<String> affected;
+        if (written.matches()) {
+            String id = written.group(1);
+            affected = cachedPath -> {
+                Matcher cachedResource = resourcePattern.matcher(cachedPath);
+                return cachedResource.matches() ? cachedResource.group(1).equals(id) : cachedPath.startsWith(collectionPath);
+            };
+        } else {
+            affected = cachedPath -> cachedPath.startsWith(collectionPath);
+        }
+        log.info("Purging cached responses affected by write to {}", path);
+        responseCache.purge(affected);
+    }
+    
+    private static Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached,
+                                          List<String> clientEtags, String result, long now) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers());
+        headers.set(ResponseCapture.CACHE_HEADER, result);
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.ageSeconds(now)));
+        
+        if (matches(clientEtags, cached.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(cached.status());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+    
+    private static boolean matches(List<String> clientEtags, String etag) {
+        if (etag == null || clientEtags.isEmpty()) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        return clientEtags.stream().anyMatch(candidate -> candidate.equals("*") || stripWeak(candidate).equals(opaque));
+    }
+    
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+    
+    /**
+     * Nanoseconds the response may be served without revalidation, or -1 if
+     * it must not be stored.
+     */
+    private static long freshnessNanos(HttpHeaders headers, Config config) {
+        long ttl = config.getTtl().toNanos();
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return ttl;
+        }
+        if (cacheControl.contains("no-store") || cacheControl.contains("private")) {
+            return -1;
+        }
+        if (cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        Matcher maxAge = S_MAXAGE.matcher(cacheControl);
+        if (!maxAge.find()) {
+            maxAge = MAX_AGE.matcher(cacheControl);
+            if (!maxAge.find()) {
+                return ttl;
+            }
+        }
+        return Math.min(ttl, Duration.ofSeconds(Long.parseLong(maxAge.group(1))).toNanos());
+    }
+    
+    private static String cacheKey(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        String query = request.getURI().getRawQuery();
+        return request.getPath().value()
+                + (query != null ? "?" + query : "")
+                + "|" + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT))
+                + "|" + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+    }
+    
+    /**
+     * Response decorator that answers backend 304s for revalidated entries
+     * from the cache and tees cacheable 200 bodies into the cache while they
+     * stream to the client.
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+        
+        private final String key;
+        private final String path;
+        private final CachedResponse revalidating;
+        private final List<String> clientEtags;
+        private final long generation;
+        private final Config config;
+        
+        CachingResponse(ServerHttpResponse delegate, String key, String path, CachedResponse revalidating,
+                        List<String> clientEtags, long generation, Config config) {
+            super(delegate);
+            this.key = key;
+            this.path = path;
+            this.revalidating = revalidating;
+            this.clientEtags = clientEtags;
+            this.generation = generation;
+            this.config = config;
+        }
+        
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            long freshness = freshnessNanos(getHeaders(), config);
+            
+            if (revalidating != null && status != null && status.value() == HttpStatus.NOT_MODIFIED.value()) {
+                long now = System.nanoTime();
+                CachedResponse refreshed = revalidating.refreshed(now, Math.max(freshness, 0));
+                if (freshness >= 0) {
+                    responseCache.put(key, refreshed, generation);
+                }
+                responseCache.recordRevalidation(refreshed.body().length);
+                return Flux.<DataBuffer>from(body)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(writeCached(getDelegate(), refreshed, clientEtags, "REVALIDATED", now));
+            }
+            
+            responseCache.recordMiss();
+            getHeaders().set(ResponseCapture.CACHE_HEADER, "MISS");
+            String etag = getHeaders().getETag();
+            long contentLength = getHeaders().getContentLength();
+            boolean cacheable = status != null && status.value() == HttpStatus.OK.value()
+                    && freshness >= 0
+                    && !ResponseCapture.isPrivate(getHeaders())
+                    && (freshness > 0 || etag != null)
+                    && (contentLength < 0 || responseCache.accepts(contentLength));
+            if (!cacheable) {
+                return super.writeWith(body);
+            }
+            
+            HttpHeaders headers = ResponseCapture.replayableHeaders(getHeaders());
+            if (revalidating != null && matches(clientEtags, etag)) {
+                // Our copy changed but the client already has the new one: store it and answer 304
+                return DataBufferUtils.join(body)
+                        .map(buffer -> {
+                            byte[] bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            DataBufferUtils.release(buffer);
+                            return bytes;
+                        })
+                        .defaultIfEmpty(new byte[0])
+                        .flatMap(bytes -> {
+                            long now = System.nanoTime();
+                            CachedResponse fetched = new CachedResponse(path, status, headers, bytes, etag, now,
+                                    now + freshness);
+                            if (responseCache.accepts(bytes.length)) {
+                                responseCache.put(key, fetched, generation);
+                            }
+                            return writeCached(getDelegate(), fetched, clientEtags, "MISS", now);
+                        });
+            }
+            Flux<DataBuffer> teed = ResponseCapture.tee(body, responseCache.maxEntryBytes(), captured -> {
+                long now = System.nanoTime();
+                responseCache.put(key, new CachedResponse(path, status, headers, captured, etag, now, now + freshness),
+                        generation);
+            });
+            return super.writeWith(teed);
+        }
+    }
+    
+    @Data
+    public static class Config {
+        
+        private Duration ttl = Duration.ofSeconds(30);
+        
+        // Collection whose listings a write invalidates, e.g. /api/products
+        private String collectionPath;
+    }
+}
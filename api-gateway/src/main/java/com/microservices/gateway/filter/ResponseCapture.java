@@ -0,0 +1,96 @@
+package com.microservices.gateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Helpers for filters that copy a backend response while it streams to the
+ * client so it can be written again for other requests.
+ */
+final class ResponseCapture {
+    
+    static final String CACHE_HEADER = "X-Cache";
+    static final String COALESCED_HEADER = "X-Coalesced";
+    
+    // Connection-specific or per-response headers that must not be replayed
+    private static final Set<String> UNREPLAYABLE_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    
+    static {
+        UNREPLAYABLE_HEADERS.addAll(List.of(
+                HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION,
+                HttpHeaders.DATE, HttpHeaders.SET_COOKIE, HttpHeaders.AGE, CACHE_HEADER, COALESCED_HEADER));
+    }
+    
+    private ResponseCapture() {
+    }
+    
+    /**
+     * Passes {@code body} through unchanged and, once it completes, hands a copy
+     * of it to {@code onCaptured}. Bodies larger than {@code maxBytes} are not
+     * copied and {@code onCaptured} is not called.
+     */
+    static Flux<DataBuffer> tee(Publisher<? extends DataBuffer> body, long maxBytes, Consumer<byte[]> onCaptured) {
+        return tee(body, maxBytes, onCaptured, () -> {
+        });
+    }
+    
+    /** Like {@link #tee(Publisher, long, Consumer)}, calling {@code onTooLarge} for bodies it could not copy. */
+    static Flux<DataBuffer> tee(Publisher<? extends DataBuffer> body, long maxBytes, Consumer<byte[]> onCaptured,
+                                Runnable onTooLarge) {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        AtomicBoolean tooLarge = new AtomicBoolean();
+        return Flux.<DataBuffer>from(body)
+                .doOnNext(buffer -> {
+                    if (tooLarge.get()) {
+                        return;
+                    }
+                    if (captured.size() + (long) buffer.readableByteCount() > maxBytes) {
+                        tooLarge.set(true);
+                        captured.reset();
+                        return;
+                    }
+                    try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                        while (iterator.hasNext()) {
+                            ByteBuffer byteBuffer = iterator.next();
+                            byte[] chunk = new byte[byteBuffer.remaining()];
+                            byteBuffer.get(chunk);
+                            captured.write(chunk, 0, chunk.length);
+                        }
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (tooLarge.get()) {
+                        onTooLarge.run();
+                    } else {
+                        onCaptured.accept(captured.toByteArray());
+                    }
+                });
+    }
+    
+    /** Read-only copy of the headers that can be sent again with a replayed body. */
+    static HttpHeaders replayableHeaders(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!UNREPLAYABLE_HEADERS.contains(name)) {
+                copy.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+    
+    static boolean isPrivate(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return headers.containsKey(HttpHeaders.SET_COOKIE)
+                || cacheControl != null && cacheControl.contains("private");
+    }
+}
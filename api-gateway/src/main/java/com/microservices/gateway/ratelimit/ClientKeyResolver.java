@@ -0,0 +1,125 @@
+package com.microservices.gateway.ratelimit;
+
+import io.netty.util.NetUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * Identifies the client a request is charged to. Authenticated requests are
+ * charged to the X-Client-Id header when present, otherwise to the principal.
+ * Anonymous requests are charged to their address: the peer address, or, when
+ * the peer is one of {@code gateway.rate-limiter.trusted-proxies}, the nearest
+ * X-Forwarded-For entry that is not a trusted proxy. Headers sent by anyone
+ * else are ignored, so a client cannot pick a fresh bucket per request.
+ */
+@Component("clientKeyResolver")
+public class ClientKeyResolver implements KeyResolver {
+    
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    
+    private final List<Cidr> trustedProxies;
+    
+    public ClientKeyResolver(@Value("${gateway.rate-limiter.trusted-proxies:}") List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .filter(StringUtils::hasText)
+                .map(Cidr::parse)
+                .toList();
+    }
+    
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        return exchange.getPrincipal()
+                .map(principal -> {
+                    String clientId = request.getHeaders().getFirst(CLIENT_ID_HEADER);
+                    return StringUtils.hasText(clientId)
+                            ? "client:" + clientId.trim()
+                            : "user:" + principal.getName();
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> resolveAddress(request)));
+    }
+    
+    private String resolveAddress(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "anonymous";
+        }
+        
+        InetAddress client = remoteAddress.getAddress();
+        List<String> forwardedFor = request.getHeaders().getValuesAsList(FORWARDED_FOR_HEADER);
+        // Walk the proxy chain from the nearest hop while each hop is a proxy we trust
+        for (int i = forwardedFor.size() - 1; i >= 0 && isTrustedProxy(client.getAddress()); i--) {
+            byte[] hop = NetUtil.createByteArrayFromIpAddressString(forwardedFor.get(i).trim());
+            if (hop == null) {
+                break;
+            }
+            client = toInetAddress(hop);
+        }
+        return "ip:" + client.getHostAddress();
+    }
+    
+    private boolean isTrustedProxy(byte[] address) {
+        return trustedProxies.stream().anyMatch(cidr -> cidr.contains(address));
+    }
+    
+    private static InetAddress toInetAddress(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /** An address or address block such as {@code 10.0.0.0/8}; a bare address matches itself only. */
+    private record Cidr(byte[] network, int prefixLength) {
+        
+        static Cidr parse(String value) {
+            String[] parts = value.trim().split("/", 2);
+            byte[] network = NetUtil.createByteArrayFromIpAddressString(parts[0]);
+            if (network == null) {
+                throw new IllegalArgumentException("Invalid trusted proxy address: " + value);
+            }
+            int maxPrefixLength = network.length * 8;
+            int prefixLength;
+            try {
+                prefixLength = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : maxPrefixLength;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length in trusted proxy range: " + value, e);
+            }
+            if (prefixLength < 0 || prefixLength > maxPrefixLength) {
+                throw new IllegalArgumentException("Prefix length of trusted proxy range " + value
+                        + " must be between 0 and " + maxPrefixLength);
+            }
+            return new Cidr(network, prefixLength);
+        }
+        
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits) & 0xFF;
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
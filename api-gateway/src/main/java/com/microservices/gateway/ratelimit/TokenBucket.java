@@ -0,0 +1,41 @@
+package com.microservices.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket kept as a single timestamp (GCRA): the instant at
+ * which the bucket would be full again. Taking n tokens pushes that instant
+ * n intervals into the future; a request is rejected when doing so would
+ * put it more than the burst capacity ahead of now.
+ */
+final class TokenBucket {
+    
+    private final AtomicLong fullAt;
+    
+    TokenBucket(long nowNanos) {
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+    
+    /**
+     * Takes {@code tokens} if available. Returns 0 on success, otherwise the
+     * nanoseconds until enough tokens will have been replenished.
+     */
+    long tryAcquire(int tokens, long nowNanos, long intervalNanos, long capacityNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + tokens * intervalNanos;
+            long overdraft = next - nowNanos - capacityNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    long available(long nowNanos, long intervalNanos, long capacityNanos) {
+        long backlog = Math.max(fullAt.get() - nowNanos, 0);
+        return (capacityNanos - backlog) / intervalNanos;
+    }
+}
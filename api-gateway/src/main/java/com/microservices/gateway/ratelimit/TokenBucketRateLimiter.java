@@ -0,0 +1,119 @@
+package com.microservices.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory {@link org.springframework.cloud.gateway.filter.ratelimit.RateLimiter}
+ * for the RequestRateLimiter filter, keeping one {@link TokenBucket} per route
+ * and client key. Limits are set per route with the
+ * {@code token-bucket-rate-limiter.*} filter args, falling back to
+ * {@code gateway.rate-limiter.*}. Buckets live in this instance only, so with
+ * several gateway replicas each enforces its own share of the limit.
+ */
+@Component
+@Slf4j
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+    
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+    
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    
+    private final Config defaultConfig;
+    private final Cache<String, TokenBucket> buckets;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    
+    public TokenBucketRateLimiter(ConfigurationService configurationService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${gateway.rate-limiter.replenish-rate:100}") int replenishRate,
+                                  @Value("${gateway.rate-limiter.burst-capacity:200}") int burstCapacity,
+                                  @Value("${gateway.rate-limiter.max-buckets:100000}") long maxBuckets,
+                                  @Value("${gateway.rate-limiter.idle-expiry:10m}") Duration idleExpiry) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.meterRegistry = meterRegistry;
+        this.defaultConfig = new Config();
+        defaultConfig.setReplenishRate(replenishRate);
+        defaultConfig.setBurstCapacity(burstCapacity);
+        // An idle bucket refills completely, so evicting it loses no state
+        // once idle-expiry exceeds the time to refill the burst capacity.
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleExpiry)
+                .build();
+        
+        Gauge.builder("gateway.rate_limiter.buckets", buckets, cache -> cache.estimatedSize())
+                .description("Client token buckets currently tracked")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getReplenishRate();
+        long capacityNanos = intervalNanos * config.getBurstCapacity();
+        long now = System.nanoTime();
+        
+        TokenBucket bucket = buckets.get(routeId + "|" + id, key -> new TokenBucket(now));
+        long waitNanos = bucket.tryAcquire(config.getRequestedTokens(), now, intervalNanos, capacityNanos);
+        boolean allowed = waitNanos == 0;
+        
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf(bucket.available(now, intervalNanos, capacityNanos)));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        if (!allowed) {
+            long retryAfterSeconds = Math.max(1, (long) Math.ceil(waitNanos / 1e9));
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            log.debug("Rate limited {} on route {}, retry after {}s", id, routeId, retryAfterSeconds);
+        }
+        
+        counter(routeId, allowed ? "allowed" : "limited").increment();
+        return Mono.just(new Response(allowed, headers));
+    }
+    
+    private Counter counter(String routeId, String result) {
+        return counters.computeIfAbsent(routeId + "|" + result, key -> Counter.builder("gateway.rate_limiter.requests")
+                .description("Requests checked by the gateway rate limiter")
+                .tag("route", routeId)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+    
+    @Data
+    @Validated
+    public static class Config {
+        
+        // Tokens added per second
+        @Min(1)
+        private int replenishRate;
+        
+        // Maximum tokens a client can bank, i.e. the largest burst allowed
+        @Min(1)
+        private int burstCapacity = 1;
+        
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+}
@@ -0,0 +1,158 @@
+#!/usr/bin/env python3
+"""
+Overload test for the gateway's adaptive concurrency limit.
+Starts a stub product-service on port 8083 that can serve only a fixed number
+of requests at once (excess requests queue, like a saturated thread pool),
+then drives GET /api/products through the gateway at increasing concurrency
+and reports throughput, shed responses and latency percentiles per stage.
+
+Without a limit, p99 grows with the queue in the stub; with it, excess load
+is shed with 503 and p99 of served requests stays near the stub's service time.
+
+Run with the real product-service stopped and the gateway started locally, so
+the product route points at the stub. All requests come from one client, so
+lift that client's rate limit above the stub's capacity or it sheds first:
+  cd api-gateway && mvn spring-boot:run -Dspring-boot.run.arguments="\
+    --gateway.rate-limiter.products.replenish-rate=100000 \
+    --gateway.rate-limiter.products.burst-capacity=100000"
+
+To compare, run it a second time against a gateway started with the limit
+turned off (add --gateway.adaptive-concurrency.enabled=false to the arguments
+above) and pass --baseline, which reports the stages without the p99 check:
+  python3 gateway-overload-test.py --baseline
+Requires: pip install requests
+"""
+
+import requests
+import time
+import sys
+import json
+import random
+import threading
+import concurrent.futures
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+GATEWAY_URL = "http://localhost:8080"
+STUB_PORT = 8083
+
+STUB_WORKERS = 8
+STUB_SERVICE_TIME = 0.02
+STAGES = [4, 16, 64, 256]
+STAGE_DURATION = 15
+P99_BOUND_MS = 500
+
+stub_workers = threading.Semaphore(STUB_WORKERS)
+thread_local = threading.local()
+
+class StubHandler(BaseHTTPRequestHandler):
+    """Product-service stand-in with a fixed number of workers"""
+    protocol_version = "HTTP/1.1"
+    
+    def do_GET(self):
+        with stub_workers:
+            time.sleep(STUB_SERVICE_TIME)
+        body = json.dumps({"id": 1, "name": "Stub product", "price": 9.99, "stockQuantity": 100}).encode()
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(body)))
+        self.send_header("Cache-Control", "no-store")
+        self.end_headers()
+        self.wfile.write(body)
+    
+    def log_message(self, format, *args):
+        pass
+
+def start_stub():
+    """Serve the stub backend on a background thread"""
+    ThreadingHTTPServer.request_queue_size = 1024
+    server = ThreadingHTTPServer(("0.0.0.0", STUB_PORT), StubHandler)
+    server.daemon_threads = True
+    threading.Thread(target=server.serve_forever, daemon=True).start()
+    return server
+
+def fetch():
+    """One GET through the gateway; unique query strings keep cache and coalescing out of the way"""
+    if not hasattr(thread_local, "session"):
+        thread_local.session = requests.Session()
+    
+    start = time.perf_counter()
+    try:
+        response = thread_local.session.get(
+            f"{GATEWAY_URL}/api/products/1",
+            params={"n": random.randint(1, 10**9)},
+            timeout=10)
+        status = response.status_code
+    except Exception:
+        status = "error"
+    return status, (time.perf_counter() - start) * 1000
+
+def worker(deadline, results, lock):
+    local = []
+    while time.time() < deadline:
+        local.append(fetch())
+    with lock:
+        results.extend(local)
+
+def percentile(values, p):
+    if not values:
+        return 0.0
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(len(ordered) * p / 100))]
+
+def run_stage(concurrency):
+    """Drive the gateway with a fixed number of concurrent clients for one stage"""
+    results = []
+    lock = threading.Lock()
+    deadline = time.time() + STAGE_DURATION
+    with concurrent.futures.ThreadPoolExecutor(max_workers=concurrency) as executor:
+        for _ in range(concurrency):
+            executor.submit(worker, deadline, results, lock)
+    
+    served = [latency for status, latency in results if status == 200]
+    shed = sum(1 for status, _ in results if status == 503)
+    limited = sum(1 for status, _ in results if status == 429)
+    errors = len(results) - len(served) - shed - limited
+    
+    print(f"{concurrency:>6} {len(served) / STAGE_DURATION:>10.1f} {shed:>8} {limited:>8} {errors:>7}"
+          f" {percentile(served, 50):>9.1f} {percentile(served, 99):>9.1f}")
+    return percentile(served, 99)
+
+def main(baseline=False):
+    print("=" * 70)
+    print("Gateway Overload Test" + (" (baseline, no concurrency limit)" if baseline else ""))
+    print("=" * 70)
+    print(f"Stub capacity: {STUB_WORKERS} workers x {STUB_SERVICE_TIME * 1000:.0f}ms"
+          f" = {STUB_WORKERS / STUB_SERVICE_TIME:.0f} req/s")
+    
+    start_stub()
+    try:
+        requests.get(f"{GATEWAY_URL}/api/products/1", timeout=5)
+    except Exception as e:
+        print(f"Gateway not reachable at {GATEWAY_URL}: {e}")
+        sys.exit(1)
+    
+    print(f"\n{'conc':>6} {'served/s':>10} {'shed':>8} {'429':>8} {'errors':>7} {'p50 ms':>9} {'p99 ms':>9}")
+    p99 = 0.0
+    for concurrency in STAGES:
+        p99 = run_stage(concurrency)
+    
+    print()
+    if baseline:
+        print(f"BASELINE: p99 of served requests at peak load is {p99:.1f}ms")
+    elif p99 <= P99_BOUND_MS:
+        print(f"PASS: p99 of served requests at peak load is {p99:.1f}ms (bound {P99_BOUND_MS}ms)")
+    else:
+        print(f"FAIL: p99 of served requests at peak load is {p99:.1f}ms (bound {P99_BOUND_MS}ms)")
+        sys.exit(1)
+
+if __name__ == "__main__":
+    import argparse
+    
+    parser = argparse.ArgumentParser(description="Gateway Overload Test")
+    parser.add_argument("--baseline", action="store_true",
+                        help="Gateway runs without the concurrency limit; report without the p99 check")
+    parser.add_argument("--url", type=str, default=GATEWAY_URL, help=f"Gateway URL (default: {GATEWAY_URL})")
+    
+    args = parser.parse_args()
+    GATEWAY_URL = args.url
+    main(baseline=args.baseline)
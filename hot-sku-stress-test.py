@@ -0,0 +1,133 @@
+#!/usr/bin/env python3
+"""
+Stress test for hot-item stock reservations.
+Fires many concurrent single-unit reservations at one product in hot-item mode
+and checks that no more units are reserved than were in stock.
+Requires: pip install requests
+"""
+
+import requests
+import time
+import sys
+import threading
+import concurrent.futures
+
+BASE_URL = "http://localhost:8083"
+
+thread_local = threading.local()
+
+def create_hot_product(stock):
+    """Create a product with the given stock and switch it to hot-item mode"""
+    product_data = {
+        "name": f"Hot SKU {int(time.time())}",
+        "description": "Hot SKU stress test product",
+        "price": 99.99,
+        "stockQuantity": stock,
+        "category": "Electronics"
+    }
+    
+    response = requests.post(f"{BASE_URL}/api/products", json=product_data)
+    response.raise_for_status()
+    product_id = response.json()["id"]
+    
+    response = requests.put(f"{BASE_URL}/api/products/{product_id}/hot-item", params={"enabled": "true"})
+    response.raise_for_status()
+    return product_id
+
+def reserve(product_id):
+    """Reserve a single unit, returning True when the reservation succeeded"""
+    if not hasattr(thread_local, "session"):
+        thread_local.session = requests.Session()
+    
+    try:
+        response = thread_local.session.post(f"{BASE_URL}/api/products/stock/reserve",
+                                json={"items": [{"productId": product_id, "quantity": 1}]})
+        return response.status_code == 200 and response.json().get("success") is True
+    except Exception:
+        return None
+
+def run_stress_test(stock=500, reservations=5000, num_workers=200, reconcile_wait=10):
+    """
+    Run concurrent reservations against one hot product
+    
+    Args:
+        stock: Initial stock of the product
+        reservations: Total number of reservation requests
+        num_workers: Number of concurrent workers
+        reconcile_wait: Seconds to wait for ledger reconciliation before checking the row
+    """
+    print(f"Starting hot SKU stress test...")
+    print(f"Stock: {stock}")
+    print(f"Reservations: {reservations}")
+    print(f"Workers: {num_workers}")
+    print(f"Target: {BASE_URL}")
+    print("-" * 50)
+    
+    product_id = create_hot_product(stock)
+    print(f"Created hot product with ID: {product_id}")
+    
+    start_time = time.time()
+    with concurrent.futures.ThreadPoolExecutor(max_workers=num_workers) as executor:
+        futures = [executor.submit(reserve, product_id) for _ in range(reservations)]
+        results = [f.result() for f in futures]
+    elapsed = time.time() - start_time
+    
+    reserved = sum(1 for r in results if r is True)
+    rejected = sum(1 for r in results if r is False)
+    errors = sum(1 for r in results if r is None)
+    
+    print(f"\nWaiting {reconcile_wait}s for ledger reconciliation...")
+    time.sleep(reconcile_wait)
+    product = requests.get(f"{BASE_URL}/api/products/{product_id}").json()
+    
+    print("\n" + "=" * 50)
+    print("Hot SKU Stress Test Results")
+    print("=" * 50)
+    print(f"Reserved: {reserved}")
+    print(f"Rejected: {rejected}")
+    print(f"Errors: {errors}")
+    print(f"Reservations per second: {reservations/elapsed:.2f}")
+    print(f"Row stock after reconciliation: {product['stockQuantity']}")
+    print(f"Leased units after reconciliation: {product['leasedQuantity']}")
+    
+    failures = []
+    if reserved > stock:
+        failures.append(f"oversold: reserved {reserved} of {stock} units")
+    if product["stockQuantity"] != stock - reserved:
+        failures.append(f"row stock {product['stockQuantity']} does not match {stock - reserved} remaining")
+    if product["leasedQuantity"] < 0 or product["leasedQuantity"] > product["stockQuantity"]:
+        failures.append(f"leased units {product['leasedQuantity']} outside of remaining stock")
+    if reservations >= stock and errors == 0 and reserved < stock:
+        failures.append(f"undersold: reserved {reserved} of {stock} units")
+    
+    if failures:
+        print("\nFAILED")
+        for failure in failures:
+            print(f"  {failure}")
+        return False
+    
+    print("\nPASSED")
+    return True
+
+if __name__ == "__main__":
+    import argparse
+    
+    parser = argparse.ArgumentParser(description="Hot SKU Stress Test")
+    parser.add_argument("--stock", type=int, default=500, help="Initial product stock (default: 500)")
+    parser.add_argument("--reservations", type=int, default=5000, help="Number of reservations (default: 5000)")
+    parser.add_argument("--workers", type=int, default=200, help="Number of concurrent workers (default: 200)")
+    parser.add_argument("--reconcile-wait", type=int, default=10, help="Seconds to wait for reconciliation (default: 10)")
+    parser.add_argument("--url", type=str, default="http://localhost:8083", help="Product service URL (default: http://localhost:8083)")
+    
+    args = parser.parse_args()
+    BASE_URL = args.url
+    
+    try:
+        passed = run_stress_test(stock=args.stock, reservations=args.reservations,
+                                 num_workers=args.workers, reconcile_wait=args.reconcile_wait)
+        sys.exit(0 if passed else 1)
+    except KeyboardInterrupt:
+        print("\n\nTest interrupted by user")
+    except Exception as e:
+        print(f"\nError during test: {e}")
+        sys.exit(1)
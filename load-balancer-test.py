@@ -0,0 +1,178 @@
+#!/usr/bin/env python3
+"""
+Load balancing test with several local stub instances of product-service.
+Starts three stub instances and sends GET /api/products through the gateway,
+checking that:
+  1. traffic follows the instance weights (9002 has weight 2),
+  2. a slow instance receives only a small share (least outstanding requests),
+  3. an instance answering 503 is ejected and stops receiving traffic.
+
+Start the gateway locally with the product-service instances pointed at the stubs:
+  cd api-gateway && mvn spring-boot:run -Dspring-boot.run.arguments="\
+    --spring.cloud.discovery.client.simple.instances.product-service[0].uri=http://localhost:9001 \
+    --spring.cloud.discovery.client.simple.instances.product-service[1].uri=http://localhost:9002 \
+    --spring.cloud.discovery.client.simple.instances.product-service[1].metadata.weight=2 \
+    --spring.cloud.discovery.client.simple.instances.product-service[2].uri=http://localhost:9003 \
+    --gateway.rate-limiter.products.replenish-rate=100000 \
+    --gateway.rate-limiter.products.burst-capacity=100000"
+All requests come from one client, hence the lifted rate limit.
+Requires: pip install requests
+"""
+
+import requests
+import time
+import sys
+import json
+import random
+import threading
+import concurrent.futures
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+GATEWAY_URL = "http://localhost:8080"
+STUB_PORTS = [9001, 9002, 9003]
+CONCURRENCY = 12
+PHASE_DURATION = 15
+
+FAST = 0.01
+SLOW = 0.15
+
+thread_local = threading.local()
+
+class StubInstance:
+    """One product-service stand-in whose behaviour can be switched between phases"""
+    
+    def __init__(self, port):
+        self.port = port
+        self.mode = "fast"
+        self.hits = 0
+        self.lock = threading.Lock()
+        instance = self
+        
+        class Handler(BaseHTTPRequestHandler):
+            protocol_version = "HTTP/1.1"
+            
+            def do_GET(self):
+                with instance.lock:
+                    instance.hits += 1
+                if instance.mode == "fail":
+                    self.respond(503, {"error": "unavailable"})
+                    return
+                time.sleep(SLOW if instance.mode == "slow" else FAST)
+                self.respond(200, {"id": 1, "name": "Stub product", "instance": instance.port})
+            
+            def respond(self, status, payload):
+                body = json.dumps(payload).encode()
+                self.send_response(status)
+                self.send_header("Content-Type", "application/json")
+                self.send_header("Content-Length", str(len(body)))
+                self.send_header("Cache-Control", "no-store")
+                self.end_headers()
+                self.wfile.write(body)
+            
+            def log_message(self, format, *args):
+                pass
+        
+        ThreadingHTTPServer.request_queue_size = 1024
+        self.server = ThreadingHTTPServer(("0.0.0.0", port), Handler)
+        self.server.daemon_threads = True
+        threading.Thread(target=self.server.serve_forever, daemon=True).start()
+    
+    def reset(self, mode):
+        with self.lock:
+            self.mode = mode
+            self.hits = 0
+
+def fetch():
+    """One GET through the gateway; unique query strings keep cache and coalescing out of the way"""
+    if not hasattr(thread_local, "session"):
+        thread_local.session = requests.Session()
+    try:
+        response = thread_local.session.get(
+            f"{GATEWAY_URL}/api/products/1",
+            params={"n": random.randint(1, 10**9)},
+            timeout=10)
+        return response.status_code
+    except Exception:
+        return "error"
+
+def worker(deadline, statuses, lock):
+    local = []
+    while time.time() < deadline:
+        local.append(fetch())
+    with lock:
+        statuses.extend(local)
+
+def run_phase(name, stubs, modes):
+    """Drive traffic with the given stub modes and return each stub's share of hits"""
+    for stub, mode in zip(stubs, modes):
+        stub.reset(mode)
+    
+    statuses = []
+    lock = threading.Lock()
+    deadline = time.time() + PHASE_DURATION
+    with concurrent.futures.ThreadPoolExecutor(max_workers=CONCURRENCY) as executor:
+        for _ in range(CONCURRENCY):
+            executor.submit(worker, deadline, statuses, lock)
+    
+    total_hits = sum(stub.hits for stub in stubs) or 1
+    shares = {stub.port: stub.hits / total_hits for stub in stubs}
+    failed = sum(1 for status in statuses if status != 200)
+    
+    print(f"\n{name} ({', '.join(f'{stub.port}={mode}' for stub, mode in zip(stubs, modes))})")
+    for stub in stubs:
+        print(f"  {stub.port}: {stub.hits:>6} requests ({shares[stub.port] * 100:5.1f}%)")
+    print(f"  client requests: {len(statuses)}, non-200: {failed}")
+    return shares, failed / max(len(statuses), 1)
+
+def check(description, passed):
+    print(f"  {'PASS' if passed else 'FAIL'}: {description}")
+    return passed
+
+def print_instance_metrics():
+    """Show the gateway's per-instance metrics, if the actuator is reachable"""
+    for metric in ["loadbalancer.instance.ejections", "loadbalancer.instance.latency"]:
+        try:
+            response = requests.get(f"{GATEWAY_URL}/actuator/metrics/{metric}", timeout=5)
+            if response.status_code == 200:
+                measurements = {m["statistic"]: m["value"] for m in response.json()["measurements"]}
+                print(f"  {metric}: {measurements}")
+        except Exception:
+            pass
+
+def main():
+    print("=" * 60)
+    print("Load Balancer Test")
+    print("=" * 60)
+    
+    stubs = [StubInstance(port) for port in STUB_PORTS]
+    try:
+        requests.get(f"{GATEWAY_URL}/api/products/1", timeout=5)
+    except Exception as e:
+        print(f"Gateway not reachable at {GATEWAY_URL}: {e}")
+        sys.exit(1)
+    
+    results = []
+    
+    shares, _ = run_phase("Phase 1: weighted", stubs, ["fast", "fast", "fast"])
+    ratio = shares[9002] / max(shares[9001], 0.001)
+    results.append(check(f"weight-2 instance got {ratio:.2f}x the traffic of a weight-1 instance", 1.4 <= ratio <= 2.8))
+    
+    shares, _ = run_phase("Phase 2: slow instance", stubs, ["fast", "fast", "slow"])
+    results.append(check(f"slow instance got {shares[9003] * 100:.1f}% of traffic (< 12%)", shares[9003] < 0.12))
+    
+    shares, failure_rate = run_phase("Phase 3: failing instance", stubs, ["fast", "fast", "fail"])
+    results.append(check(f"failing instance got {shares[9003] * 100:.1f}% of traffic (< 5%)", shares[9003] < 0.05))
+    results.append(check(f"{failure_rate * 100:.2f}% of client requests failed (< 5%)", failure_rate < 0.05))
+    
+    print("\nGateway instance metrics:")
+    print_instance_metrics()
+    
+    print()
+    if all(results):
+        print("All load balancing checks passed")
+    else:
+        print("Some load balancing checks failed")
+        sys.exit(1)
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,139 @@
+package com.microservices.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-instance request statistics shared by every load-balanced service:
+ * requests in flight, latency and passive outlier ejection. An instance that
+ * fails {@code consecutive-failures} requests in a row (errors, timeouts, 502,
+ * 503 or 504) is ejected for {@code base-ejection-time} multiplied by the
+ * number of times it has been ejected, capped at five. The count starts over
+ * once the instance has stayed in rotation for {@code ejection-decay} since
+ * its last ejection ended, so old failures of a recovered instance do not
+ * lengthen its next ejection.
+ */
+@Component
+@Slf4j
+public class InstanceStats {
+    
+    private static final int MAX_EJECTION_MULTIPLIER = 5;
+    
+    private final MeterRegistry meterRegistry;
+    private final int consecutiveFailureThreshold;
+    private final long baseEjectionNanos;
+    private final long ejectionDecayNanos;
+    private final int maxEjectionPercent;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    
+    public InstanceStats(MeterRegistry meterRegistry,
+                         @Value("${loadbalancer.outlier.consecutive-failures:5}") int consecutiveFailureThreshold,
+                         @Value("${loadbalancer.outlier.base-ejection-time:30s}") Duration baseEjectionTime,
+                         @Value("${loadbalancer.outlier.max-ejection-percent:50}") int maxEjectionPercent,
+                         @Value("${loadbalancer.outlier.ejection-decay:5m}") Duration ejectionDecay) {
+        this.meterRegistry = meterRegistry;
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+        this.baseEjectionNanos = baseEjectionTime.toNanos();
+        this.ejectionDecayNanos = ejectionDecay.toNanos();
+        this.maxEjectionPercent = maxEjectionPercent;
+    }
+    
+    public int inFlight(ServiceInstance instance) {
+        Stats instanceStats = stats.get(key(instance));
+        return instanceStats != null ? instanceStats.inFlight.get() : 0;
+    }
+    
+    public boolean isEjected(ServiceInstance instance, long nowNanos) {
+        Stats instanceStats = stats.get(key(instance));
+        return instanceStats != null && nowNanos - instanceStats.ejectedUntilNanos < 0;
+    }
+    
+    /** Most instances of a service that may be ejected at once, given how many there are. */
+    public int maxEjected(int instanceCount) {
+        return instanceCount * maxEjectionPercent / 100;
+    }
+    
+    public void onStart(ServiceInstance instance) {
+        stats(instance).inFlight.incrementAndGet();
+    }
+    
+    /** Records a finished request; {@code latencyNanos} is negative when unknown. */
+    public void onComplete(ServiceInstance instance, long latencyNanos, boolean failed) {
+        Stats instanceStats = stats(instance);
+        instanceStats.inFlight.decrementAndGet();
+        if (latencyNanos >= 0) {
+            instanceStats.latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+        
+        if (!failed) {
+            instanceStats.consecutiveFailures.set(0);
+            return;
+        }
+        if (instanceStats.consecutiveFailures.incrementAndGet() >= consecutiveFailureThreshold) {
+            instanceStats.consecutiveFailures.set(0);
+            long now = System.nanoTime();
+            if (now - instanceStats.ejectedUntilNanos >= ejectionDecayNanos) {
+                // Healthy long enough since the last ejection ended: back to the base ejection time
+                instanceStats.ejections.set(0);
+            }
+            int multiplier = Math.min(instanceStats.ejections.incrementAndGet(), MAX_EJECTION_MULTIPLIER);
+            long ejectionNanos = baseEjectionNanos * multiplier;
+            instanceStats.ejectedUntilNanos = now + ejectionNanos;
+            instanceStats.ejectionCounter.increment();
+            log.warn("Ejecting {} instance {} for {}s after {} consecutive failures", instance.getServiceId(),
+                    instance.getUri(), TimeUnit.NANOSECONDS.toSeconds(ejectionNanos), consecutiveFailureThreshold);
+        }
+    }
+    
+    private Stats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), key -> new Stats(instance));
+    }
+    
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "|" + instance.getUri();
+    }
+    
+    private class Stats {
+        
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicInteger ejections = new AtomicInteger();
+        private volatile long ejectedUntilNanos = System.nanoTime();
+        private final Timer latency;
+        private final Counter ejectionCounter;
+        
+        Stats(ServiceInstance instance) {
+            Tags tags = Tags.of("service", instance.getServiceId(),
+                    "instance", instance.getHost() + ":" + instance.getPort());
+            Gauge.builder("loadbalancer.instance.in_flight", inFlight, AtomicInteger::get)
+                    .description("Requests in flight to the instance")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder("loadbalancer.instance.ejected", this, stats -> System.nanoTime() - stats.ejectedUntilNanos < 0 ? 1 : 0)
+                    .description("1 while the instance is ejected as an outlier")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("loadbalancer.instance.latency")
+                    .description("Latency of requests sent to the instance")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.ejectionCounter = Counter.builder("loadbalancer.instance.ejections")
+                    .description("Times the instance was ejected as an outlier")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.microservices.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds every load-balanced request into {@link InstanceStats}. Requests that
+ * fail, time out or get 502, 503 or 504 count toward outlier ejection.
+ */
+@Component
+@RequiredArgsConstructor
+public class InstanceStatsLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+    
+    private final InstanceStats instanceStats;
+    
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+    
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(System.nanoTime());
+        }
+        if (lbResponse.hasServer()) {
+            instanceStats.onStart(lbResponse.getServer());
+        }
+    }
+    
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD
+                || lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        
+        long latencyNanos = -1;
+        Request<Object> request = completionContext.getLoadBalancerRequest();
+        if (request != null && request.getContext() instanceof TimedRequestContext context
+                && context.getRequestStartTime() != 0) {
+            latencyNanos = System.nanoTime() - context.getRequestStartTime();
+        }
+        instanceStats.onComplete(lbResponse.getServer(), latencyNanos, isFailure(completionContext));
+    }
+    
+    private static boolean isFailure(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        if (completionContext.getClientResponse() instanceof ResponseData response && response.getHttpStatus() != null) {
+            HttpStatusCode status = response.getHttpStatus();
+            return status.value() == 502 || status.value() == 503 || status.value() == 504;
+        }
+        return false;
+    }
+}
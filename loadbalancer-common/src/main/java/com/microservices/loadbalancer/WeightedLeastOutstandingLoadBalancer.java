@@ -0,0 +1,89 @@
+package com.microservices.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the instance with the fewest requests in flight relative to its
+ * weight, i.e. the lowest (in flight + 1) / weight, breaking ties at random.
+ * Weights come from the instance metadata key {@code weight} (default 1).
+ * Ejected outliers are skipped unless that would leave fewer instances than
+ * the max-ejection-percent allows, in which case all are considered.
+ */
+@Slf4j
+public class WeightedLeastOutstandingLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+    
+    public static final String WEIGHT_METADATA_KEY = "weight";
+    
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceStats instanceStats;
+    
+    public WeightedLeastOutstandingLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                                String serviceId, InstanceStats instanceStats) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.instanceStats = instanceStats;
+    }
+    
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+    
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            log.warn("No instances available for {}", serviceId);
+            return new EmptyResponse();
+        }
+        
+        long now = System.nanoTime();
+        List<ServiceInstance> candidates = instances.stream()
+                .filter(instance -> !instanceStats.isEjected(instance, now))
+                .toList();
+        if (instances.size() - candidates.size() > instanceStats.maxEjected(instances.size())) {
+            candidates = instances;
+        }
+        
+        ServiceInstance best = null;
+        double bestScore = Double.MAX_VALUE;
+        int ties = 0;
+        for (ServiceInstance instance : candidates) {
+            double score = (instanceStats.inFlight(instance) + 1) / weight(instance);
+            if (score < bestScore) {
+                best = instance;
+                bestScore = score;
+                ties = 1;
+            } else if (score == bestScore && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                best = instance;
+            }
+        }
+        return new DefaultResponse(best);
+    }
+    
+    private static double weight(ServiceInstance instance) {
+        String weight = instance.getMetadata().get(WEIGHT_METADATA_KEY);
+        if (weight == null) {
+            return 1;
+        }
+        try {
+            double parsed = Double.parseDouble(weight);
+            return parsed > 0 ? parsed : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
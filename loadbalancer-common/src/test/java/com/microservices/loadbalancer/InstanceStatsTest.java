@@ -0,0 +1,110 @@
+package com.microservices.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Outlier ejection: the failure threshold, ejections that lengthen while an
+ * instance keeps failing, their reset after a healthy period and the cap on
+ * how many instances may be ejected at once.
+ */
+class InstanceStatsTest {
+    
+    private static final int THRESHOLD = 3;
+    
+    private final ServiceInstance instance =
+            new DefaultServiceInstance("product-service-1", "product-service", "localhost", 8083, false);
+    
+    @Test
+    void ejectsAfterConsecutiveFailures() {
+        InstanceStats stats = instanceStats(Duration.ofSeconds(10), Duration.ofHours(1));
+        
+        fail(stats, THRESHOLD - 1);
+        assertThat(stats.isEjected(instance, System.nanoTime())).isFalse();
+        
+        fail(stats, 1);
+        long ejectedAt = System.nanoTime();
+        assertThat(stats.isEjected(instance, ejectedAt)).isTrue();
+        assertThat(stats.isEjected(instance, ejectedAt + Duration.ofSeconds(11).toNanos())).isFalse();
+    }
+    
+    @Test
+    void successResetsConsecutiveFailures() {
+        InstanceStats stats = instanceStats(Duration.ofSeconds(10), Duration.ofHours(1));
+        
+        fail(stats, THRESHOLD - 1);
+        stats.onStart(instance);
+        stats.onComplete(instance, -1, false);
+        fail(stats, THRESHOLD - 1);
+        
+        assertThat(stats.isEjected(instance, System.nanoTime())).isFalse();
+    }
+    
+    @Test
+    void repeatedEjectionsLengthenUpToFiveTimesTheBase() {
+        InstanceStats stats = instanceStats(Duration.ofSeconds(10), Duration.ofHours(1));
+        
+        fail(stats, THRESHOLD);
+        fail(stats, THRESHOLD);
+        long secondEjection = System.nanoTime();
+        assertThat(stats.isEjected(instance, secondEjection + Duration.ofSeconds(15).toNanos())).isTrue();
+        
+        fail(stats, THRESHOLD * 5);
+        long lastEjection = System.nanoTime();
+        assertThat(stats.isEjected(instance, lastEjection + Duration.ofSeconds(45).toNanos())).isTrue();
+        assertThat(stats.isEjected(instance, lastEjection + Duration.ofSeconds(55).toNanos())).isFalse();
+    }
+    
+    @Test
+    void ejectionCountDecaysAfterHealthyPeriod() throws InterruptedException {
+        InstanceStats stats = instanceStats(Duration.ofMillis(100), Duration.ofMillis(200));
+        
+        fail(stats, THRESHOLD);
+        // Ejection ends after 100ms and the instance then stays healthy for longer than the 200ms decay
+        Thread.sleep(400);
+        fail(stats, THRESHOLD);
+        long ejectedAt = System.nanoTime();
+        
+        assertThat(stats.isEjected(instance, ejectedAt + Duration.ofMillis(150).toNanos())).isFalse();
+    }
+    
+    @Test
+    void ejectionCountKeptWithinDecayPeriod() throws InterruptedException {
+        InstanceStats stats = instanceStats(Duration.ofMillis(100), Duration.ofMillis(200));
+        
+        fail(stats, THRESHOLD);
+        // Ejection ends after 100ms, but the instance fails again before the 200ms decay has passed
+        Thread.sleep(150);
+        fail(stats, THRESHOLD);
+        long ejectedAt = System.nanoTime();
+        
+        assertThat(stats.isEjected(instance, ejectedAt + Duration.ofMillis(150).toNanos())).isTrue();
+    }
+    
+    @Test
+    void ejectsAtMostHalfTheInstances() {
+        InstanceStats stats = instanceStats(Duration.ofSeconds(10), Duration.ofHours(1));
+        
+        assertThat(stats.maxEjected(1)).isZero();
+        assertThat(stats.maxEjected(2)).isEqualTo(1);
+        assertThat(stats.maxEjected(3)).isEqualTo(1);
+        assertThat(stats.maxEjected(10)).isEqualTo(5);
+    }
+    
+    private static InstanceStats instanceStats(Duration baseEjectionTime, Duration ejectionDecay) {
+        return new InstanceStats(new SimpleMeterRegistry(), THRESHOLD, baseEjectionTime, 50, ejectionDecay);
+    }
+    
+    private void fail(InstanceStats stats, int times) {
+        for (int i = 0; i < times; i++) {
+            stats.onStart(instance);
+            stats.onComplete(instance, -1, true);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+#!/usr/bin/env python3
+"""
+Insert throughput benchmark for the order-service.
+Creates orders with many items directly against the services (bypassing the
+gateway and its rate limits) and reports orders and items written per second.
+
+Run the same mode against two builds to compare them, e.g. the build before
+the switch to pooled sequences (identity IDs, no JDBC batching) and the
+current one:
+    python3 order-insert-benchmark.py --mode create --orders 2000 --items 20
+The import mode uses POST /api/orders/import, which only exists in builds
+with batched inserts:
+    python3 order-insert-benchmark.py --mode import --orders 20000 --items 20
+Requires: pip install requests
+"""
+
+import requests
+import time
+import threading
+import concurrent.futures
+
+ORDER_URL = "http://localhost:8082"
+USER_URL = "http://localhost:8081"
+PRODUCT_URL = "http://localhost:8083"
+
+thread_local = threading.local()
+
+def get_session():
+    if not hasattr(thread_local, "session"):
+        thread_local.session = requests.Session()
+    return thread_local.session
+
+def create_fixtures(num_products, stock):
+    """Create one user and the products every order is made of"""
+    suffix = int(time.time())
+    response = requests.post(f"{USER_URL}/api/users", json={
+        "name": "Insert Benchmark",
+        "email": f"insert-benchmark-{suffix}@example.com",
+        "phoneNumber": "+905551200000"
+    })
+    response.raise_for_status()
+    user_id = response.json()["id"]
+    
+    product_ids = []
+    for i in range(num_products):
+        response = requests.post(f"{PRODUCT_URL}/api/products", json={
+            "name": f"Insert Benchmark {suffix}-{i}",
+            "description": "Insert benchmark product",
+            "price": 10.00,
+            "stockQuantity": stock,
+            "category": "Books"
+        })
+        response.raise_for_status()
+        product_ids.append(response.json()["id"])
+    return user_id, product_ids
+
+def create_order(user_id, product_ids):
+    """Create one order through the regular checkout path"""
+    order_data = {
+        "userId": user_id,
+        "items": [{"productId": product_id, "quantity": 1} for product_id in product_ids]
+    }
+    start = time.time()
+    try:
+        response = get_session().post(f"{ORDER_URL}/api/orders", json=order_data)
+        return {"ok": response.status_code == 201, "orders": 1, "time": time.time() - start}
+    except Exception:
+        return {"ok": False, "orders": 1, "time": time.time() - start}
+
+def import_orders(user_id, num_orders, num_items):
+    """Import a batch of already-priced orders in one request"""
+    orders = [{
+        "userId": user_id,
+        "status": "CONFIRMED",
+        "items": [{"productId": i + 1, "productName": f"Product {i + 1}", "quantity": 1, "price": 10.00}
+                  for i in range(num_items)]
+    } for _ in range(num_orders)]
+    start = time.time()
+    try:
+        response = get_session().post(f"{ORDER_URL}/api/orders/import", json=orders)
+        return {"ok": response.status_code == 201, "orders": num_orders, "time": time.time() - start}
+    except Exception:
+        return {"ok": False, "orders": num_orders, "time": time.time() - start}
+
+def run_benchmark(mode="create", num_orders=2000, num_items=20, num_workers=20, import_batch=500):
+    """
+    Write orders as fast as the service accepts them
+    
+    Args:
+        mode: "create" for POST /api/orders, "import" for POST /api/orders/import
+        num_orders: Total number of orders to write
+        num_items: Items per order
+        num_workers: Number of concurrent workers
+        import_batch: Orders per import request
+    """
+    print(f"Starting order insert benchmark...")
+    print(f"Mode: {mode}")
+    print(f"Orders: {num_orders}")
+    print(f"Items per order: {num_items}")
+    print(f"Workers: {num_workers}")
+    print(f"Target: {ORDER_URL}")
+    print("-" * 50)
+    
+    if mode == "create":
+        user_id, product_ids = create_fixtures(num_items, num_orders)
+        tasks = [lambda: create_order(user_id, product_ids) for _ in range(num_orders)]
+    else:
+        user_id, _ = create_fixtures(0, 0)
+        batches = [min(import_batch, num_orders - i) for i in range(0, num_orders, import_batch)]
+        tasks = [lambda size=size: import_orders(user_id, size, num_items) for size in batches]
+    
+    start_time = time.time()
+    with concurrent.futures.ThreadPoolExecutor(max_workers=num_workers) as executor:
+        results = list(executor.map(lambda task: task(), tasks))
+    elapsed = time.time() - start_time
+    
+    written = sum(r["orders"] for r in results if r["ok"])
+    failed = sum(r["orders"] for r in results if not r["ok"])
+    times = sorted(r["time"] for r in results)
+    
+    print("\n" + "=" * 50)
+    print("Order Insert Benchmark Results")
+    print("=" * 50)
+    print(f"Orders written: {written}")
+    print(f"Orders failed: {failed}")
+    print(f"Elapsed: {elapsed:.2f}s")
+    print(f"Orders per second: {written/elapsed:.2f}")
+    print(f"Items per second: {written*num_items/elapsed:.2f}")
+    print(f"\nRequest times:")
+    print(f"  p50: {times[len(times)//2]:.3f}s")
+    print(f"  p99: {times[min(len(times) - 1, int(len(times)*0.99))]:.3f}s")
+    print(f"  Max: {times[-1]:.3f}s")
+
+if __name__ == "__main__":
+    import argparse
+    
+    parser = argparse.ArgumentParser(description="Order insert throughput benchmark")
+    parser.add_argument("--mode", choices=["create", "import"], default="create", help="Write path to measure (default: create)")
+    parser.add_argument("--orders", type=int, default=2000, help="Total orders to write (default: 2000)")
+    parser.add_argument("--items", type=int, default=20, help="Items per order (default: 20)")
+    parser.add_argument("--workers", type=int, default=20, help="Number of concurrent workers (default: 20)")
+    parser.add_argument("--import-batch", type=int, default=500, help="Orders per import request (default: 500)")
+    parser.add_argument("--order-url", type=str, default=ORDER_URL, help=f"Order service URL (default: {ORDER_URL})")
+    parser.add_argument("--user-url", type=str, default=USER_URL, help=f"User service URL (default: {USER_URL})")
+    parser.add_argument("--product-url", type=str, default=PRODUCT_URL, help=f"Product service URL (default: {PRODUCT_URL})")
+    
+    args = parser.parse_args()
+    ORDER_URL = args.order_url
+    USER_URL = args.user_url
+    PRODUCT_URL = args.product_url
+    
+    try:
+        run_benchmark(mode=args.mode, num_orders=args.orders, num_items=args.items,
+                      num_workers=args.workers, import_batch=args.import_batch)
+    except KeyboardInterrupt:
+        print("\n\nBenchmark interrupted by user")
+    except Exception as e:
+        print(f"\nError during benchmark: {e}")
@@ -0,0 +1,17 @@
+package com.microservices.order.cache;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Catalog fields order-service needs from a product, tagged with the product's
+ * updatedAt version and the time the entry was loaded.
+ */
+public record CachedProduct(Long id, String name, BigDecimal price, LocalDateTime version, Instant loadedAt) {
+    
+    /** True if this entry reflects an older product version than the other one. */
+    public boolean isOlderThan(CachedProduct other) {
+        return version != null && other.version != null && version.isBefore(other.version);
+    }
+}
@@ -0,0 +1,161 @@
+package com.microservices.order.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microservices.order.client.ProductServiceClient;
+import com.microservices.order.dto.ProductResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Near-cache for product name and price. Entries are refreshed ahead of expiry
+ * when they are read after services.product.cache.refresh-after, so hot SKUs
+ * rarely pay for a product-service round trip. Stock is never cached.
+ * <p>
+ * Product-service does not notify order-service of price changes, so
+ * staleness is bounded by age instead: an entry loaded longer than
+ * services.product.cache.max-price-age ago is never used for pricing and is
+ * reloaded before {@link #getAll} returns.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache {
+    
+    private final ProductServiceClient productServiceClient;
+    private final AsyncLoadingCache<Long, CachedProduct> cache;
+    private final DistributionSummary staleness;
+    private final Duration maxPriceAge;
+    
+    @Value("${services.product.concurrency:8}")
+    private int productConcurrency;
+    
+    @Value("${services.product.batch-size:100}")
+    private int productBatchSize;
+    
+    public ProductCatalogCache(ProductServiceClient productServiceClient,
+                               MeterRegistry meterRegistry,
+                               @Value("${services.product.cache.max-size:10000}") long maxSize,
+                               @Value("${services.product.cache.ttl:10m}") Duration ttl,
+                               @Value("${services.product.cache.refresh-after:1m}") Duration refreshAfter,
+                               @Value("${services.product.cache.max-price-age:2m}") Duration maxPriceAge) {
+        this.productServiceClient = productServiceClient;
+        this.maxPriceAge = maxPriceAge;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .buildAsync(new ProductLoader());
+        this.staleness = DistributionSummary.builder("product.cache.staleness")
+                .description("Age of product catalog entries served from the near-cache")
+                .baseUnit("seconds")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "productCatalog");
+    }
+    
+    /**
+     * Returns the cached catalog entries for the given products, loading missing
+     * ones and reloading those older than the max price age in batches.
+     * Unknown products are absent from the result.
+     */
+    public Mono<Map<Long, CachedProduct>> getAll(Collection<Long> productIds) {
+        Instant requestedAt = Instant.now();
+        return Mono.fromFuture(cache.getAll(productIds))
+                .flatMap(products -> reloadExpired(products, requestedAt.minus(maxPriceAge)))
+                .doOnNext(products -> products.values().stream()
+                        .filter(product -> product.loadedAt().isBefore(requestedAt))
+                        .forEach(product -> staleness.record(
+                                Duration.between(product.loadedAt(), requestedAt).toMillis() / 1000.0)));
+    }
+    
+    private Mono<Map<Long, CachedProduct>> reloadExpired(Map<Long, CachedProduct> products, Instant loadedAfter) {
+        Set<Long> expired = products.values().stream()
+                .filter(product -> product.loadedAt().isBefore(loadedAfter))
+                .map(CachedProduct::id)
+                .collect(Collectors.toSet());
+        if (expired.isEmpty()) {
+            return Mono.just(products);
+        }
+        
+        log.debug("Reloading {} product catalog entries older than {}", expired.size(), maxPriceAge);
+        return load(expired).map(reloaded -> {
+            Map<Long, CachedProduct> merged = new HashMap<>(products);
+            reloaded.forEach((id, product) -> {
+                // Never let a reload move an entry back to an older product version
+                CachedProduct current = products.get(id);
+                CachedProduct newest = product.isOlderThan(current) ? current : product;
+                merged.put(id, newest);
+                cache.put(id, CompletableFuture.completedFuture(newest));
+            });
+            expired.stream()
+                    .filter(id -> !reloaded.containsKey(id))
+                    .forEach(id -> {
+                        merged.remove(id);
+                        cache.synchronous().invalidate(id);
+                    });
+            return merged;
+        });
+    }
+    
+    private Mono<Map<Long, CachedProduct>> load(Collection<? extends Long> productIds) {
+        return Flux.<Long>fromIterable(productIds)
+                .buffer(productBatchSize)
+                .flatMap(productServiceClient::getProducts, productConcurrency)
+                .flatMapIterable(products -> products)
+                .map(ProductCatalogCache::toCachedProduct)
+                .collectMap(CachedProduct::id, Function.identity());
+    }
+    
+    private static CachedProduct toCachedProduct(ProductResponse product) {
+        return new CachedProduct(
+                product.id(),
+                product.name(),
+                product.price(),
+                product.updatedAt(),
+                Instant.now());
+    }
+    
+    private class ProductLoader implements AsyncCacheLoader<Long, CachedProduct> {
+        
+        @Override
+        public CompletableFuture<CachedProduct> asyncLoad(Long productId, Executor executor) {
+            return load(Set.of(productId))
+                    .mapNotNull(products -> products.get(productId))
+                    .toFuture();
+        }
+        
+        @Override
+        public CompletableFuture<Map<Long, CachedProduct>> asyncLoadAll(Set<? extends Long> productIds,
+                                                                       Executor executor) {
+            return load(productIds).toFuture();
+        }
+        
+        @Override
+        public CompletableFuture<CachedProduct> asyncReload(Long productId, CachedProduct oldValue,
+                                                            Executor executor) {
+            // Never let a refresh move an entry back to an older product version
+            return asyncLoad(productId, executor)
+                    .thenApply(newValue -> newValue != null && newValue.isOlderThan(oldValue) ? oldValue : newValue);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.microservices.order.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded cache of user verification results. Users that exist are kept for
+ * the positive TTL; unknown users only for the shorter negative TTL so a new
+ * account becomes orderable quickly.
+ */
+@Component
+@Slf4j
+public class UserExistenceCache {
+    
+    private final Cache<Long, Boolean> cache;
+    
+    public UserExistenceCache(MeterRegistry meterRegistry,
+                              @Value("${services.user.cache.max-size:50000}") long maxSize,
+                              @Value("${services.user.cache.positive-ttl:10m}") Duration positiveTtl,
+                              @Value("${services.user.cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Long, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, Boolean exists, long currentTime) {
+                        return (exists ? positiveTtl : negativeTtl).toNanos();
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(Long userId, Boolean exists, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(userId, exists, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(Long userId, Boolean exists, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userExistence");
+    }
+    
+    public Boolean get(Long userId) {
+        return cache.getIfPresent(userId);
+    }
+    
+    public void put(Long userId, boolean exists) {
+        cache.put(userId, exists);
+    }
+    
+    public void invalidate(Long userId) {
+        log.info("Invalidating cached verification for user ID: {}", userId);
+        cache.invalidate(userId);
+    }
+}
@@ -1,73 +1,123 @@
 package com.microservices.order.client;
 
-import lombok.RequiredArgsConstructor;
+import com.microservices.order.dto.ProductResponse;
+import com.microservices.order.dto.StockReservationRequest;
+import com.microservices.order.dto.StockReservationResult;
+import com.microservices.order.model.OrderItem;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.math.BigDecimal;
-import java.util.Map;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class ProductServiceClient {
-    
-    private final WebClient.Builder webClientBuilder;
-    
-    @Value("${services.product.url}")
-    private String productServiceUrl;
-    
-    public Map<String, Object> getProduct(Long productId) {
-        try {
-            log.info("Fetching product with ID: {}", productId);
-            
-            WebClient webClient = webClientBuilder.baseUrl(productServiceUrl).build();
-            
-            Map<String, Object> product = webClient.get()
-                    .uri("/api/products/{id}", productId)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .onErrorResume(e -> {
-                        log.error("Error fetching product: {}", e.getMessage());
+
+    private static final int RELEASE_RETRIES = 3;
+    private static final Duration RELEASE_RETRY_BACKOFF = Duration.ofMillis(200);
+
+    private final WebClient webClient;
+
+    public ProductServiceClient(@Qualifier("productServiceWebClient") WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    public Mono<ProductResponse> getProduct(Long productId) {
+        log.info("Fetching product with ID: {}", productId);
+
+        return webClient.get()
+                .uri("/api/products/{id}", productId)
+                .retrieve()
+                .bodyToMono(ProductResponse.class)
+                .doOnNext(product -> log.info("Product fetched: {}", product.name()))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .onErrorMap(e -> !(e instanceof ServiceUnavailableException), e -> {
+                    log.error("Error fetching product: {}", e.getMessage());
+                    return new ServiceUnavailableException("Product service unavailable while fetching product", e);
+                });
+    }
+
+    /**
+     * Fetches the given products; unknown IDs are absent from the result. Fails
+     * with {@link ServiceUnavailableException} if product-service cannot answer,
+     * so an outage is not mistaken for missing products.
+     */
+    public Mono<List<ProductResponse>> getProducts(Collection<Long> productIds) {
+        log.info("Fetching {} products by ID", productIds.size());
+
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/products/batch")
+                        .queryParam("ids", productIds)
+                        .build())
+                .retrieve()
+                .bodyToFlux(ProductResponse.class)
+                .collectList()
+                .doOnNext(products -> log.info("Fetched {} of {} products", products.size(), productIds.size()))
+                .onErrorMap(e -> {
+                    log.error("Error fetching products: {}", e.getMessage());
+                    return new ServiceUnavailableException("Product service unavailable while fetching products", e);
+                });
+    }
+
+    /**
+     * Reserves stock for all items in one atomic call. Emits the ID of the first
+     * product that could not be reserved, or completes empty when every item was reserved.
+     *
+     * <p>If product-service gives no answer the reservation may still have been
+     * applied, so it is cancelled by its ID (a no-op if it never was) and the call
+     * fails with {@link ServiceUnavailableException} rather than reporting
+     * insufficient stock.
+     */
+    public Mono<Long> reserveStock(String reservationId, List<OrderItem> orderItems) {
+        log.info("Reserving stock for {} items with reservation {}", orderItems.size(), reservationId);
+
+        return webClient.post()
+                .uri("/api/products/stock/reserve")
+                .bodyValue(StockReservationRequest.from(reservationId, orderItems))
+                .retrieve()
+                .bodyToMono(StockReservationResult.class)
+                .onErrorResume(e -> {
+                    log.error("Error reserving stock with reservation {}: {}", reservationId, e.getMessage());
+                    return releaseStock(reservationId, orderItems)
+                            .then(Mono.error(new ServiceUnavailableException(
+                                    "Product service unavailable while reserving stock", e)));
+                })
+                .flatMap(result -> {
+                    log.info("Stock reservation result: {}", result.success());
+                    if (result.success()) {
                         return Mono.empty();
-                    })
-                    .block();
-            
-            log.info("Product fetched: {}", product != null ? product.get("name") : "null");
-            return product;
-        } catch (Exception e) {
-            log.error("Exception fetching product", e);
-            return null;
-        }
+                    }
+                    return Mono.just(result.failedProductId() != null
+                            ? result.failedProductId()
+                            : orderItems.get(0).getProductId());
+                });
     }
-    
-    public boolean updateStock(Long productId, Integer quantity) {
-        try {
-            log.info("Updating stock for product ID: {} with quantity: {}", productId, quantity);
-            
-            WebClient webClient = webClientBuilder.baseUrl(productServiceUrl).build();
-            
-            Map<String, Object> response = webClient.post()
-                    .uri("/api/products/{id}/stock", productId)
-                    .bodyValue(Map.of("quantity", quantity))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .onErrorResume(e -> {
-                        log.error("Error updating stock: {}", e.getMessage());
-                        return Mono.just(Map.of("success", false));
-                    })
-                    .block();
-            
-            boolean success = response != null && Boolean.TRUE.equals(response.get("success"));
-            log.info("Stock update result for product ID {}: {}", productId, success);
-            
-            return success;
-        } catch (Exception e) {
-            log.error("Exception updating stock", e);
-            return false;
-        }
+
+    /**
+     * Undoes the reservation with the given ID if product-service applied it.
+     * Retried a few times because a lost release would leak the reserved stock.
+     */
+    public Mono<Void> releaseStock(String reservationId, List<OrderItem> orderItems) {
+        log.info("Releasing stock for {} items with reservation {}", orderItems.size(), reservationId);
+
+        return webClient.post()
+                .uri("/api/products/stock/release")
+                .bodyValue(StockReservationRequest.from(reservationId, orderItems))
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.backoff(RELEASE_RETRIES, RELEASE_RETRY_BACKOFF))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("Error releasing stock for reservation {} - stock stays reserved: {}",
+                            reservationId, e.getMessage());
+                    return Mono.empty();
+                });
     }
 }
@@ -0,0 +1,12 @@
+package com.microservices.order.client;
+
+/**
+ * A downstream service could not give an answer (connection failure, timeout
+ * or server error), as opposed to answering that the request cannot be met.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,47 +1,103 @@
 package com.microservices.order.client;
 
-import lombok.RequiredArgsConstructor;
+import com.microservices.order.cache.UserExistenceCache;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class UserServiceClient {
-    
-    private final WebClient.Builder webClientBuilder;
-    
-    @Value("${services.user.url}")
-    private String userServiceUrl;
-    
-    public boolean verifyUser(Long userId) {
-        try {
-            log.info("Verifying user with ID: {}", userId);
-            
-            WebClient webClient = webClientBuilder.baseUrl(userServiceUrl).build();
-            
-            Map<String, Object> response = webClient.get()
-                    .uri("/api/users/{id}", userId)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .onErrorResume(e -> {
-                        log.error("Error verifying user: {}", e.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-            
-            boolean verified = response != null && response.get("id") != null;
-            log.info("User verification result for ID {}: {}", userId, verified);
-            
-            return verified;
-        } catch (Exception e) {
-            log.error("Exception verifying user", e);
-            return false;
+
+    private final WebClient webClient;
+    private final UserExistenceCache userExistenceCache;
+
+    public UserServiceClient(@Qualifier("userServiceWebClient") WebClient webClient,
+                             UserExistenceCache userExistenceCache) {
+        this.webClient = webClient;
+        this.userExistenceCache = userExistenceCache;
+    }
+
+    /**
+     * Resolves to whether the user exists. Fails with
+     * {@link ServiceUnavailableException} if user-service cannot answer, so an
+     * outage is not mistaken for a missing user.
+     */
+    public Mono<Boolean> verifyUser(Long userId) {
+        Boolean cached = userExistenceCache.get(userId);
+        if (cached != null) {
+            log.info("User verification result for ID {} served from cache: {}", userId, cached);
+            return Mono.just(cached);
+        }
+
+        log.info("Verifying user with ID: {}", userId);
+
+        return webClient.head()
+                .uri("/api/users/{id}", userId)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> true)
+                .doOnNext(verified -> userExistenceCache.put(userId, verified))
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                    userExistenceCache.put(userId, false);
+                    return Mono.just(false);
+                })
+                .onErrorMap(e -> {
+                    log.error("Error verifying user: {}", e.getMessage());
+                    return new ServiceUnavailableException("User service unavailable while verifying user", e);
+                })
+                .doOnNext(verified -> log.info("User verification result for ID {}: {}", userId, verified));
+    }
+
+    /**
+     * Verifies many users with one call and returns the IDs that exist. Cached
+     * results are reused. Fails with {@link ServiceUnavailableException} if
+     * user-service cannot answer for the uncached IDs.
+     */
+    public Mono<Set<Long>> verifyUsers(Collection<Long> userIds) {
+        Set<Long> verified = new HashSet<>();
+        List<Long> uncached = new ArrayList<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            Boolean cached = userExistenceCache.get(userId);
+            if (cached == null) {
+                uncached.add(userId);
+            } else if (cached) {
+                verified.add(userId);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return Mono.just(verified);
         }
+        
+        log.info("Verifying {} users ({} served from cache)", uncached.size(), userIds.size() - uncached.size());
+        
+        return webClient.post()
+                .uri("/api/users/exists")
+                .bodyValue(uncached)
+                .retrieve()
+                .bodyToFlux(Long.class)
+                .collectList()
+                .map(existing -> {
+                    Set<Long> existingIds = new HashSet<>(existing);
+                    for (Long userId : uncached) {
+                        userExistenceCache.put(userId, existingIds.contains(userId));
+                    }
+                    verified.addAll(existingIds);
+                    return verified;
+                })
+                .onErrorMap(e -> {
+                    log.error("Error verifying users: {}", e.getMessage());
+                    return new ServiceUnavailableException("User service unavailable while verifying users", e);
+                });
     }
 }
@@ -0,0 +1,21 @@
+package com.microservices.order.config;
+
+import com.microservices.loadbalancer.InstanceStats;
+import com.microservices.loadbalancer.InstanceStatsLifecycle;
+import com.microservices.loadbalancer.WeightedLeastOutstandingLoadBalancer;
+import com.microservices.loadbalancer.WeightedLeastOutstandingLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Uses {@link WeightedLeastOutstandingLoadBalancer} for the user-service and
+ * product-service clients. Instances are listed statically under
+ * spring.cloud.discovery.client.simple.instances. The load balancer and its
+ * statistics come from the shared loadbalancer-common module.
+ */
+@Configuration
+@Import({InstanceStats.class, InstanceStatsLifecycle.class})
+@LoadBalancerClients(defaultConfiguration = WeightedLeastOutstandingLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
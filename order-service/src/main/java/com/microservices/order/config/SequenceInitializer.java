@@ -0,0 +1,40 @@
+package com.microservices.order.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the ID sequences past any rows written while the tables still used
+ * identity columns, so pooled sequence allocation never hands out an ID that
+ * is already taken. Sequences only ever move forward.
+ *
+ * Runs once all singletons exist and before the web server starts, so no
+ * request can insert an order before the sequences are aligned.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceInitializer implements SmartInitializingSingleton {
+    
+    private static final int ALLOCATION_SIZE = 50;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void afterSingletonsInstantiated() {
+        alignSequence("orders_seq", "orders");
+        alignSequence("order_items_seq", "order_items");
+    }
+    
+    private void alignSequence(String sequence, String table) {
+        Long value = jdbcTemplate.queryForObject(
+                "SELECT setval('" + sequence + "', GREATEST(" +
+                "(SELECT COALESCE(MAX(id), 0) FROM " + table + ") + " + ALLOCATION_SIZE + ", " +
+                "(SELECT last_value FROM " + sequence + ")))",
+                Long.class);
+        log.info("Sequence {} aligned to {}", sequence, value);
+    }
+}
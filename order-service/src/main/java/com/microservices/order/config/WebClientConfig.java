@@ -0,0 +1,127 @@
+package com.microservices.order.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * One long-lived WebClient per downstream service, each backed by its own
+ * Reactor Netty connection pool. Pool gauges (active, idle, pending connections
+ * and acquire time) are published under reactor.netty.connection.provider.*.
+ * Requests go to http://{service-id} and are spread over that service's
+ * instances by the load balancer (see LoadBalancerConfig).
+ * With services.http.smile.enabled the clients negotiate Smile responses.
+ */
+@Configuration
+public class WebClientConfig {
+    
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+    
+    public static final String USER_SERVICE_ID = "user-service";
+    public static final String PRODUCT_SERVICE_ID = "product-service";
+    
+    @Value("${services.http.pool.max-connections:100}")
+    private int maxConnections;
+    
+    @Value("${services.http.pool.pending-acquire-max-count:500}")
+    private int pendingAcquireMaxCount;
+    
+    @Value("${services.http.pool.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+    
+    @Value("${services.http.pool.max-idle-time:30s}")
+    private Duration maxIdleTime;
+    
+    @Value("${services.http.pool.max-life-time:5m}")
+    private Duration maxLifeTime;
+    
+    @Value("${services.http.pool.evict-interval:30s}")
+    private Duration evictInterval;
+    
+    @Value("${services.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+    
+    @Value("${services.http.response-timeout:5s}")
+    private Duration responseTimeout;
+    
+    @Value("${services.http.smile.enabled:false}")
+    private boolean smileEnabled;
+    
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+    
+    @Autowired
+    private ReactorLoadBalancerExchangeFilterFunction loadBalancerFilter;
+    
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider userServiceConnectionProvider() {
+        return connectionProvider(USER_SERVICE_ID);
+    }
+    
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider productServiceConnectionProvider() {
+        return connectionProvider(PRODUCT_SERVICE_ID);
+    }
+    
+    @Bean
+    public WebClient userServiceWebClient(WebClient.Builder webClientBuilder) {
+        return webClient(webClientBuilder, userServiceConnectionProvider(), USER_SERVICE_ID);
+    }
+    
+    @Bean
+    public WebClient productServiceWebClient(WebClient.Builder webClientBuilder) {
+        return webClient(webClientBuilder, productServiceConnectionProvider(), PRODUCT_SERVICE_ID);
+    }
+    
+    private ConnectionProvider connectionProvider(String name) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
+                .build();
+    }
+    
+    private WebClient webClient(WebClient.Builder webClientBuilder, ConnectionProvider connectionProvider,
+                                String serviceId) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout);
+        
+        WebClient.Builder builder = webClientBuilder.clone()
+                .baseUrl("http://" + serviceId)
+                .filter(loadBalancerFilter)
+                .clientConnector(new ReactorClientHttpConnector(httpClient));
+        
+        if (smileEnabled) {
+            // Prefer the binary encoding for responses; JSON stays acceptable for servers without it
+            ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+            builder.codecs(codecs -> {
+                        codecs.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper));
+                        codecs.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper));
+                    })
+                    .defaultHeader(HttpHeaders.ACCEPT, SMILE_VALUE, MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+        }
+        return builder.build();
+    }
+}
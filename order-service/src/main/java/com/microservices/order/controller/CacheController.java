@@ -0,0 +1,27 @@
+package com.microservices.order.controller;
+
+import com.microservices.order.cache.UserExistenceCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Internal endpoints used by other services to invalidate order-service caches.
+ * Not routed through the API gateway.
+ */
+@RestController
+@RequestMapping("/internal/cache")
+@RequiredArgsConstructor
+@Slf4j
+public class CacheController {
+    
+    private final UserExistenceCache userExistenceCache;
+    
+    @DeleteMapping("/users/{id}")
+    public ResponseEntity<Void> invalidateUser(@PathVariable Long id) {
+        log.info("REST request to invalidate cached user ID: {}", id);
+        userExistenceCache.invalidate(id);
+        return ResponseEntity.noContent().build();
+    }
+}
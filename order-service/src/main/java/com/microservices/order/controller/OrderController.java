@@ -1,17 +1,28 @@
 package com.microservices.order.controller;
 
+import com.microservices.order.client.ServiceUnavailableException;
 import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.ImportOrderRequest;
+import com.microservices.order.dto.OrderResponse;
 import com.microservices.order.model.Order;
+import com.microservices.order.service.CommitOutcomeUnknownException;
+import com.microservices.order.service.OrderIntakeService;
 import com.microservices.order.service.OrderService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -19,7 +30,12 @@ import java.util.Map;
 @Slf4j
 public class OrderController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    
     private final OrderService orderService;
+    private final OrderIntakeService orderIntakeService;
     
     @PostMapping
     public ResponseEntity<Order> createOrder(@Valid @RequestBody CreateOrderRequest request) {
@@ -28,6 +44,33 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
     }
     
+    @PostMapping("/async")
+    public ResponseEntity<Map<String, Object>> submitOrder(@Valid @RequestBody CreateOrderRequest request) {
+        log.info("REST request to submit order for user ID: {}", request.getUserId());
+        
+        try {
+            Order pendingOrder = orderIntakeService.submit(request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/" + pendingOrder.getId()))
+                    .body(Map.of(
+                            "orderId", pendingOrder.getId(),
+                            "status", pendingOrder.getStatus()
+                    ));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importOrders(
+            @RequestBody @NotEmpty List<@Valid ImportOrderRequest> requests) {
+        log.info("REST request to import {} orders", requests.size());
+        int imported = orderService.importOrders(requests);
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("imported", imported));
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
         log.info("REST request to get order by ID: {}", id);
@@ -36,19 +79,53 @@ public class OrderController {
     }
     
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders(
-            @RequestParam(required = false) Long userId) {
+    public ResponseEntity<List<OrderResponse>> getAllOrders(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
         log.info("REST request to get all orders");
         
+        if (after != null || limit != null) {
+            int pageSize = limit != null ? Math.min(Math.max(limit, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+            List<OrderResponse> orders = orderService.getOrdersPage(userId, status,
+                    after != null ? after : 0L, pageSize);
+            
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (orders.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(orders.get(orders.size() - 1).id()));
+            }
+            return response.body(orders);
+        }
+        
+        if (userId != null && status != null) {
+            List<OrderResponse> orders = orderService.getOrdersByUserIdAndStatus(userId, status);
+            return ResponseEntity.ok(orders);
+        }
+        
         if (userId != null) {
-            List<Order> orders = orderService.getOrdersByUserId(userId);
+            List<OrderResponse> orders = orderService.getOrdersByUserId(userId);
             return ResponseEntity.ok(orders);
         }
         
-        List<Order> orders = orderService.getAllOrders();
+        if (status != null) {
+            List<OrderResponse> orders = orderService.getOrdersByStatus(status);
+            return ResponseEntity.ok(orders);
+        }
+        
+        List<OrderResponse> orders = orderService.getAllOrders();
         return ResponseEntity.ok(orders);
     }
     
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        log.info("REST request to export all orders");
+        StreamingResponseBody body = orderService::exportOrders;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     @PatchMapping("/{id}/status")
     public ResponseEntity<Order> updateOrderStatus(
             @PathVariable Long id,
@@ -66,4 +143,18 @@ public class OrderController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Order Service is running!");
     }
+    
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceUnavailable(ServiceUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", e.getMessage()));
+    }
+    
+    /** The order may or may not have been placed; the client must look before retrying. */
+    @ExceptionHandler(CommitOutcomeUnknownException.class)
+    public ResponseEntity<Map<String, Object>> handleCommitOutcomeUnknown(CommitOutcomeUnknownException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("message", e.getMessage()));
+    }
 }
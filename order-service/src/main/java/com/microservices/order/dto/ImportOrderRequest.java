@@ -0,0 +1,50 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.model.Order;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * An already-priced order loaded through the bulk import endpoint. Users are
+ * verified in bulk; no product or stock checks are made for imported orders.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportOrderRequest {
+    
+    @NotNull(message = "User ID is required")
+    private Long userId;
+    
+    private Order.OrderStatus status;
+    
+    @NotEmpty(message = "Order items cannot be empty")
+    private List<@Valid ImportOrderItem> items;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ImportOrderItem {
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+        
+        @NotBlank(message = "Product name is required")
+        private String productName;
+        
+        @NotNull(message = "Quantity is required")
+        @Positive(message = "Quantity must be positive")
+        private Integer quantity;
+        
+        @NotNull(message = "Price is required")
+        private BigDecimal price;
+    }
+}
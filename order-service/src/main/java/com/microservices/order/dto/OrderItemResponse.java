@@ -0,0 +1,24 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.model.OrderItem;
+
+import java.math.BigDecimal;
+
+public record OrderItemResponse(
+        Long id,
+        Long productId,
+        String productName,
+        Integer quantity,
+        BigDecimal price,
+        BigDecimal subtotal) {
+    
+    public static OrderItemResponse from(OrderItem item) {
+        return new OrderItemResponse(
+                item.getId(),
+                item.getProductId(),
+                item.getProductName(),
+                item.getQuantity(),
+                item.getPrice(),
+                item.getSubtotal());
+    }
+}
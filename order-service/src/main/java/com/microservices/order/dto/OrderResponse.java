@@ -0,0 +1,33 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only view of an order and its items, serialized with the same shape as
+ * the {@link Order} entity. Built from a fully fetched order graph so list
+ * responses never trigger lazy loading.
+ */
+public record OrderResponse(
+        Long id,
+        Long userId,
+        BigDecimal totalAmount,
+        Order.OrderStatus status,
+        List<OrderItemResponse> items,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+    
+    public static OrderResponse from(Order order) {
+        return new OrderResponse(
+                order.getId(),
+                order.getUserId(),
+                order.getTotalAmount(),
+                order.getStatus(),
+                order.getItems().stream().map(OrderItemResponse::from).toList(),
+                order.getCreatedAt(),
+                order.getUpdatedAt());
+    }
+}
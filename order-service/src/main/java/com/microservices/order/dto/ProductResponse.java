@@ -0,0 +1,17 @@
+package com.microservices.order.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a product-service product that order-service reads. Other
+ * properties in the response are ignored.
+ */
+public record ProductResponse(
+        Long id,
+        String name,
+        BigDecimal price,
+        Integer stockQuantity,
+        String category,
+        LocalDateTime updatedAt) {
+}
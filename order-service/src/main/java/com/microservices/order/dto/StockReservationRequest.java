@@ -0,0 +1,22 @@
+package com.microservices.order.dto;
+
+import com.microservices.order.model.OrderItem;
+
+import java.util.List;
+
+/**
+ * Stock reservation or release for an order. The reservation ID makes both
+ * idempotent on product-service: a release only undoes a reservation that
+ * was actually applied.
+ */
+public record StockReservationRequest(String reservationId, List<Item> items) {
+    
+    public record Item(Long productId, Integer quantity) {
+    }
+    
+    public static StockReservationRequest from(String reservationId, List<OrderItem> orderItems) {
+        return new StockReservationRequest(reservationId, orderItems.stream()
+                .map(item -> new Item(item.getProductId(), item.getQuantity()))
+                .toList());
+    }
+}
@@ -0,0 +1,4 @@
+package com.microservices.order.dto;
+
+public record StockReservationResult(boolean success, Long failedProductId) {
+}
@@ -1,13 +1,67 @@
 package com.microservices.order.repository;
 
 import com.microservices.order.model.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * List reads fetch orders together with their items in a single query via the
+ * "items" entity graph. Paged reads select the page of IDs first and then load
+ * that page's graph, since a collection fetch cannot be limited in SQL.
+ */
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserId(Long userId);
-    List<Order> findByStatus(Order.OrderStatus status);
-}
+    @EntityGraph(attributePaths = "items")
+    @Query("select o from Order o order by o.id")
+    List<Order> findAllWithItems();
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findByUserIdOrderByIdAsc(Long userId);
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findByStatusOrderByIdAsc(Order.OrderStatus status);
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findByUserIdAndStatusOrderByIdAsc(Long userId, Order.OrderStatus status);
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findByIdInOrderByIdAsc(Collection<Long> ids);
+    
+    @Query("select o.id from Order o where o.id > :after order by o.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Limit limit);
+    
+    @Query("select o.id from Order o where o.userId = :userId and o.id > :after order by o.id")
+    List<Long> findIdsByUserIdAfter(@Param("userId") Long userId, @Param("after") Long after, Limit limit);
+    
+    @Query("select o.id from Order o where o.status = :status and o.id > :after order by o.id")
+    List<Long> findIdsByStatusAfter(@Param("status") Order.OrderStatus status, @Param("after") Long after,
+                                    Limit limit);
+    
+    @Query("select o.id from Order o where o.userId = :userId and o.status = :status and o.id > :after " +
+            "order by o.id")
+    List<Long> findIdsByUserIdAndStatusAfter(@Param("userId") Long userId,
+                                             @Param("status") Order.OrderStatus status,
+                                             @Param("after") Long after,
+                                             Limit limit);
+    
+    @Query("select o.id from Order o where o.status = :status and o.createdAt < :before")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") Order.OrderStatus status,
+                                            @Param("before") LocalDateTime before);
+    
+    @Modifying
+    @Query("update Order o set o.status = :to, o.updatedAt = :now, o.version = o.version + 1 " +
+            "where o.id in :ids and o.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") Order.OrderStatus from,
+                     @Param("to") Order.OrderStatus to,
+                     @Param("now") LocalDateTime now);
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.microservices.order.service;
+
+import com.microservices.order.model.Order;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A group commit was already under way when the caller stopped waiting, so the
+ * order may still be committed. Callers must not undo side effects of the order
+ * (released stock, cancellation) until {@link #getOutcome()} completes.
+ */
+public class CommitOutcomeUnknownException extends RuntimeException {
+    
+    private final CompletableFuture<Order> outcome;
+    
+    public CommitOutcomeUnknownException(String message, Throwable cause, CompletableFuture<Order> outcome) {
+        super(message, cause);
+        this.outcome = outcome;
+    }
+    
+    /** Completes with the saved order, or exceptionally if the write failed. */
+    public CompletableFuture<Order> getOutcome() {
+        return outcome;
+    }
+}
@@ -0,0 +1,213 @@
+package com.microservices.order.service;
+
+import com.microservices.order.model.Order;
+import com.microservices.order.repository.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional group commit for new orders. When enabled, orders saved by
+ * concurrent requests are collected for up to the configured window (or until
+ * the batch is full) and written in a single transaction, so many orders share
+ * one WAL flush. Each caller blocks until its own order is committed.
+ */
+@Component
+@Slf4j
+public class OrderGroupCommitter {
+    
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSizeSummary;
+    private final Timer waitTimer;
+    
+    @Value("${orders.group-commit.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${orders.group-commit.window:5ms}")
+    private Duration window;
+    
+    @Value("${orders.group-commit.max-batch-size:64}")
+    private int maxBatchSize;
+    
+    @Value("${orders.group-commit.commit-timeout:10s}")
+    private Duration commitTimeout;
+    
+    private volatile boolean running;
+    private Thread writerThread;
+    
+    public OrderGroupCommitter(OrderRepository orderRepository,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSizeSummary = DistributionSummary.builder("orders.group_commit.batch.size")
+                .description("Orders written per group commit transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("orders.group_commit.wait")
+                .description("Time an order waited for its group commit to start")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Order group commit enabled with window {} and max batch size {}", window, maxBatchSize);
+        running = true;
+        writerThread = new Thread(this::runWriter, "order-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+    
+    /**
+     * Saves the order, either directly or as part of the next group commit.
+     */
+    public Order save(Order order) {
+        if (!running) {
+            return orderRepository.save(order);
+        }
+        
+        PendingWrite write = new PendingWrite(order, order.getId() == null, System.nanoTime(),
+                new CompletableFuture<>());
+        queue.add(write);
+        if (!running && queue.remove(write)) {
+            // The writer may already have drained the queue and exited
+            return orderRepository.save(order);
+        }
+        
+        try {
+            return write.result().get(commitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(write)) {
+                throw new RuntimeException("Timed out waiting for order group commit to start", e);
+            }
+            throw new CommitOutcomeUnknownException("Timed out waiting for order group commit - outcome unknown",
+                    e, write.result());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (queue.remove(write)) {
+                throw new RuntimeException("Interrupted while waiting for order commit", e);
+            }
+            throw new CommitOutcomeUnknownException("Interrupted while waiting for order commit - outcome unknown",
+                    e, write.result());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Error committing order", e.getCause());
+        }
+    }
+    
+    private void runWriter() {
+        try {
+            writeUntilStopped();
+        } finally {
+            // Writes enqueued after the last poll would otherwise wait forever
+            List<PendingWrite> leftover = new ArrayList<>();
+            queue.drainTo(leftover);
+            if (!leftover.isEmpty()) {
+                log.warn("Order group commit writer stopped with {} queued orders", leftover.size());
+            }
+            leftover.forEach(write -> write.result().completeExceptionally(
+                    new RuntimeException("Order group commit writer stopped")));
+        }
+    }
+    
+    private void writeUntilStopped() {
+        while (running || !queue.isEmpty()) {
+            List<PendingWrite> batch = new ArrayList<>();
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                
+                batch.add(first);
+                long deadline = System.nanoTime() + window.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Put back a half-collected batch so it is failed with the rest of the queue
+                queue.addAll(batch);
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in order group commit writer", e);
+            }
+        }
+    }
+    
+    private void write(List<PendingWrite> batch) {
+        long startedAt = System.nanoTime();
+        batchSizeSummary.record(batch.size());
+        batch.forEach(write -> waitTimer.record(startedAt - write.enqueuedAt(), TimeUnit.NANOSECONDS));
+        
+        List<Order> orders = batch.stream().map(PendingWrite::order).toList();
+        try {
+            List<Order> savedOrders = transactionTemplate.execute(status -> orderRepository.saveAll(orders));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(savedOrders.get(i));
+            }
+            log.debug("Group committed {} orders", batch.size());
+        } catch (Exception e) {
+            // One bad order must not fail the whole group: retry each on its own
+            log.warn("Group commit of {} orders failed, retrying individually: {}", batch.size(), e.getMessage());
+            for (PendingWrite write : batch) {
+                try {
+                    if (write.isNew()) {
+                        // IDs assigned by the rolled-back persist must not be reused as existing rows
+                        resetIds(write.order());
+                    }
+                    write.result().complete(orderRepository.save(write.order()));
+                } catch (Exception individual) {
+                    write.result().completeExceptionally(individual);
+                }
+            }
+        }
+    }
+    
+    private void resetIds(Order order) {
+        order.setId(null);
+        order.getItems().forEach(item -> item.setId(null));
+    }
+    
+    private record PendingWrite(Order order, boolean isNew, long enqueuedAt, CompletableFuture<Order> result) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.microservices.order.service;
+
+import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.model.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous order intake. Orders are persisted as PENDING and completed by a
+ * fixed pool of workers fed from a bounded queue; when the queue is full new
+ * orders are rejected up front instead of tying up request threads. PENDING
+ * orders that no worker will complete (crash, failed completion) are cancelled
+ * by a sweep once they are older than {@code orders.intake.stale-after}.
+ */
+@Service
+@Slf4j
+public class OrderIntakeService {
+    
+    private final OrderService orderService;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore permits;
+    private final Counter rejectedCounter;
+    private final MeterRegistry meterRegistry;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Duration staleAfter;
+    
+    public OrderIntakeService(OrderService orderService,
+                              MeterRegistry meterRegistry,
+                              @Value("${orders.intake.workers:8}") int workers,
+                              @Value("${orders.intake.queue-capacity:1000}") int queueCapacity,
+                              @Value("${orders.intake.stale-after:10m}") Duration staleAfter) {
+        this.orderService = orderService;
+        this.meterRegistry = meterRegistry;
+        this.staleAfter = staleAfter;
+        this.permits = new Semaphore(workers + queueCapacity);
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-intake-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        
+        Gauge.builder("orders.intake.queue.depth", executor, e -> e.getQueue().size())
+                .description("Pending orders waiting for an intake worker")
+                .register(meterRegistry);
+        Gauge.builder("orders.intake.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Pending orders currently being processed")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("orders.intake.rejected")
+                .description("Orders rejected because the intake queue was full")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Accepts an order for asynchronous processing and returns it in PENDING state.
+     *
+     * @throws RejectedExecutionException if the intake queue is full
+     */
+    public Order submit(CreateOrderRequest request) {
+        if (!permits.tryAcquire()) {
+            rejectedCounter.increment();
+            log.warn("Order intake queue is full - rejecting order for user ID: {}", request.getUserId());
+            throw new RejectedExecutionException("Order intake queue is full");
+        }
+        
+        Order pendingOrder;
+        try {
+            pendingOrder = orderService.createPendingOrder(request);
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+        
+        long acceptedAt = System.nanoTime();
+        inFlight.add(pendingOrder.getId());
+        try {
+            executor.execute(() -> {
+                Order.OrderStatus status = Order.OrderStatus.PENDING;
+                try {
+                    status = orderService.completeOrder(pendingOrder, request).getStatus();
+                } catch (Exception e) {
+                    log.error("Error processing pending order {} - left for the stale order sweep",
+                            pendingOrder.getId(), e);
+                } finally {
+                    inFlight.remove(pendingOrder.getId());
+                    permits.release();
+                    Timer.builder("orders.intake.processing")
+                            .description("Time from order acceptance to its final status")
+                            .tag("status", status.name())
+                            .publishPercentiles(0.5, 0.95, 0.99)
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - acceptedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor is shutting down; the order would otherwise stay PENDING forever
+            inFlight.remove(pendingOrder.getId());
+            permits.release();
+            log.warn("Could not queue pending order {} - cancelling it", pendingOrder.getId());
+            try {
+                orderService.cancelPendingOrder(pendingOrder);
+            } catch (RuntimeException cancelError) {
+                e.addSuppressed(cancelError);
+            }
+            throw e;
+        }
+        
+        log.info("Order {} accepted for asynchronous processing", pendingOrder.getId());
+        return pendingOrder;
+    }
+    
+    /**
+     * Cancels stale PENDING orders; runs on startup and then periodically.
+     * Orders still held by this instance's workers are never touched.
+     */
+    @Scheduled(fixedDelayString = "${orders.intake.stale-sweep-interval-ms:60000}")
+    public void cancelStalePendingOrders() {
+        try {
+            orderService.cancelStalePendingOrders(LocalDateTime.now().minus(staleAfter), Set.copyOf(inFlight));
+        } catch (Exception e) {
+            log.error("Stale pending order sweep failed", e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Order intake workers did not finish within 30 seconds");
+        }
+    }
+}
@@ -1,96 +1,71 @@
 package com.microservices.order.service;
 
+import com.microservices.order.cache.CachedProduct;
+import com.microservices.order.cache.ProductCatalogCache;
 import com.microservices.order.client.ProductServiceClient;
+import com.microservices.order.client.ServiceUnavailableException;
 import com.microservices.order.client.UserServiceClient;
 import com.microservices.order.dto.CreateOrderRequest;
+import com.microservices.order.dto.ImportOrderRequest;
+import com.microservices.order.dto.OrderResponse;
 import com.microservices.order.model.Order;
 import com.microservices.order.model.OrderItem;
 import com.microservices.order.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderService {
     
+    private static final int EXPORT_CHUNK_SIZE = 500;
+    
     private final OrderRepository orderRepository;
     private final UserServiceClient userServiceClient;
     private final ProductServiceClient productServiceClient;
+    private final ProductCatalogCache productCatalogCache;
+    private final OrderGroupCommitter orderGroupCommitter;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int importBatchSize;
+    
+    @Value("${orders.intake.unavailable-retries:3}")
+    private int unavailableRetries;
+    
+    @Value("${orders.intake.unavailable-retry-delay:1s}")
+    private Duration unavailableRetryDelay;
 
-    @Transactional
     public Order createOrder(CreateOrderRequest request) {
         try {
             log.info("Creating order for user ID: {}", request.getUserId());
             
-            // Verify user exists
-            if (!userServiceClient.verifyUser(request.getUserId())) {
-                throw new RuntimeException("User not found with ID: " + request.getUserId());
-            }
-            
             Order order = new Order();
             order.setUserId(request.getUserId());
             order.setStatus(Order.OrderStatus.PENDING);
             
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            
-            // Process each order item
-            for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-                try {
-                    log.info("Processing order item - Product ID: {}, Quantity: {}",
-                            itemRequest.getProductId(), itemRequest.getQuantity());
-                    
-                    // Get product details
-                    Map<String, Object> product = productServiceClient.getProduct(itemRequest.getProductId());
-                    if (product == null) {
-                        throw new RuntimeException("Product not found with ID: " + itemRequest.getProductId());
-                    }
-                    
-                    // Check and update stock
-                    boolean stockUpdated = productServiceClient.updateStock(
-                            itemRequest.getProductId(), 
-                            itemRequest.getQuantity()
-                    );
-                    
-                    if (!stockUpdated) {
-                        throw new RuntimeException("Insufficient stock for product ID: " + itemRequest.getProductId());
-                    }
-                    
-                    // Create order item
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setProductId(itemRequest.getProductId());
-                    orderItem.setProductName((String) product.get("name"));
-                    orderItem.setQuantity(itemRequest.getQuantity());
-                    
-                    // Parse price from product
-                    Object priceObj = product.get("price");
-                    BigDecimal price = priceObj instanceof Number 
-                            ? BigDecimal.valueOf(((Number) priceObj).doubleValue())
-                            : new BigDecimal(priceObj.toString());
-                    
-                    orderItem.setPrice(price);
-                    orderItem.calculateSubtotal();
-                    
-                    order.addOrderItem(orderItem);
-                    totalAmount = totalAmount.add(orderItem.getSubtotal());
-                    
-                    log.info("Order item processed successfully");
-                } catch (Exception e) {
-                    throw e;
-                }
-            }
-            
-            order.setTotalAmount(totalAmount);
-            order.setStatus(Order.OrderStatus.CONFIRMED);
-            
-            Order savedOrder = orderRepository.save(order);
-            
+            Order savedOrder = confirmOrder(order, request);
 
             log.info("Order created successfully with ID: {} and total amount: {}", 
                     savedOrder.getId(), savedOrder.getTotalAmount());
@@ -102,6 +77,186 @@ public class OrderService {
         }
     }
     
+    /**
+     * Persists an empty PENDING order so its ID can be handed back before the
+     * order is assembled by {@link #completeOrder}.
+     */
+    public Order createPendingOrder(CreateOrderRequest request) {
+        try {
+            log.info("Accepting pending order for user ID: {}", request.getUserId());
+            
+            Order order = new Order();
+            order.setUserId(request.getUserId());
+            order.setStatus(Order.OrderStatus.PENDING);
+            order.setTotalAmount(BigDecimal.ZERO);
+            
+            return orderGroupCommitter.save(order);
+        } catch (Exception e) {
+            log.error("Error accepting pending order", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Assembles a PENDING order and moves it to CONFIRMED, or to CANCELLED if
+     * the user, products or stock cannot be satisfied. A downstream outage is
+     * retried a few times first, so valid orders are not cancelled over it.
+     */
+    public Order completeOrder(Order order, CreateOrderRequest request) {
+        Long orderId = order.getId();
+        try {
+            Order confirmedOrder = confirmWithRetries(order, request);
+            log.info("Pending order {} confirmed with total amount: {}", orderId, confirmedOrder.getTotalAmount());
+            return confirmedOrder;
+        } catch (CommitOutcomeUnknownException e) {
+            // Cancelling now could overwrite a confirmation that is still being committed;
+            // if the write fails the order stays PENDING for the stale order sweep
+            throw e;
+        } catch (Exception e) {
+            log.warn("Cancelling pending order {}: {}", orderId, e.getMessage());
+            return cancelPendingOrder(order);
+        }
+    }
+    
+    /**
+     * Moves a PENDING order that will not be assembled to CANCELLED.
+     */
+    public Order cancelPendingOrder(Order order) {
+        order.getItems().clear();
+        order.setTotalAmount(BigDecimal.ZERO);
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        return orderRepository.save(order);
+    }
+    
+    /**
+     * Cancels PENDING orders created before the cutoff that no worker is going to
+     * complete any more, e.g. because the instance that accepted them crashed or
+     * {@link #completeOrder} itself failed. Orders in {@code inFlight} are skipped.
+     *
+     * @return the number of orders cancelled
+     */
+    @Transactional
+    public int cancelStalePendingOrders(LocalDateTime createdBefore, Set<Long> inFlight) {
+        try {
+            List<Long> staleIds = orderRepository.findIdsByStatusCreatedBefore(
+                            Order.OrderStatus.PENDING, createdBefore).stream()
+                    .filter(id -> !inFlight.contains(id))
+                    .toList();
+            if (staleIds.isEmpty()) {
+                return 0;
+            }
+            
+            int cancelled = orderRepository.updateStatus(staleIds,
+                    Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED, LocalDateTime.now());
+            log.warn("Cancelled {} stale pending orders created before {}", cancelled, createdBefore);
+            return cancelled;
+        } catch (Exception e) {
+            log.error("Error cancelling stale pending orders", e);
+            throw e;
+        }
+    }
+    
+    private Order confirmWithRetries(Order order, CreateOrderRequest request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return confirmOrder(order, request);
+            } catch (ServiceUnavailableException e) {
+                if (attempt > unavailableRetries) {
+                    throw e;
+                }
+                log.warn("Pending order {} attempt {} failed, retrying: {}", order.getId(), attempt, e.getMessage());
+                try {
+                    Thread.sleep(unavailableRetryDelay.multipliedBy(attempt).toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private Order confirmOrder(Order order, CreateOrderRequest request) {
+        // Keys the reservation so a timed-out or failed order can undo exactly what was reserved
+        String reservationId = UUID.randomUUID().toString();
+        
+        // Verify user and fetch all products concurrently, then reserve stock
+        List<OrderItem> orderItems = Mono.zip(
+                        userServiceClient.verifyUser(request.getUserId()),
+                        fetchProducts(request.getItems()))
+                .flatMap(result -> {
+                    if (!result.getT1()) {
+                        return Mono.<List<OrderItem>>error(
+                                new RuntimeException("User not found with ID: " + request.getUserId()));
+                    }
+                    return reserveStock(reservationId, result.getT2());
+                })
+                .block();
+        
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderItem orderItem : orderItems) {
+            order.addOrderItem(orderItem);
+            totalAmount = totalAmount.add(orderItem.getSubtotal());
+        }
+        
+        order.setTotalAmount(totalAmount);
+        order.setStatus(Order.OrderStatus.CONFIRMED);
+        
+        try {
+            return orderGroupCommitter.save(order);
+        } catch (CommitOutcomeUnknownException e) {
+            // The write may still commit: give the stock back only once it is known to have failed
+            e.getOutcome().whenComplete((saved, failure) -> {
+                if (failure != null) {
+                    log.warn("Order write for reservation {} failed after timing out - releasing stock",
+                            reservationId);
+                    productServiceClient.releaseStock(reservationId, orderItems).subscribe();
+                }
+            });
+            throw e;
+        } catch (Exception e) {
+            // Give the reserved stock back so a failed order does not leak inventory
+            productServiceClient.releaseStock(reservationId, orderItems).block();
+            throw e;
+        }
+    }
+    
+    private Mono<List<OrderItem>> fetchProducts(List<CreateOrderRequest.OrderItemRequest> itemRequests) {
+        Set<Long> productIds = itemRequests.stream()
+                .map(CreateOrderRequest.OrderItemRequest::getProductId)
+                .collect(Collectors.toSet());
+        
+        return productCatalogCache.getAll(productIds)
+                .map(productsById -> itemRequests.stream()
+                        .map(itemRequest -> {
+                            log.info("Processing order item - Product ID: {}, Quantity: {}",
+                                    itemRequest.getProductId(), itemRequest.getQuantity());
+                            
+                            CachedProduct product = productsById.get(itemRequest.getProductId());
+                            if (product == null) {
+                                throw new RuntimeException("Product not found with ID: " + itemRequest.getProductId());
+                            }
+                            return toOrderItem(itemRequest, product);
+                        })
+                        .toList());
+    }
+    
+    private Mono<List<OrderItem>> reserveStock(String reservationId, List<OrderItem> orderItems) {
+        return productServiceClient.reserveStock(reservationId, orderItems)
+                .flatMap(failedProductId -> Mono.<List<OrderItem>>error(new RuntimeException(
+                        "Insufficient stock for product ID: " + failedProductId)))
+                .defaultIfEmpty(orderItems);
+    }
+    
+    private OrderItem toOrderItem(CreateOrderRequest.OrderItemRequest itemRequest, CachedProduct product) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setProductId(itemRequest.getProductId());
+        orderItem.setProductName(product.name());
+        orderItem.setQuantity(itemRequest.getQuantity());
+        orderItem.setPrice(product.price());
+        orderItem.calculateSubtotal();
+        return orderItem;
+    }
+    
     public Order getOrderById(Long id) {
         try {
             log.info("Fetching order with ID: {}", id);
@@ -114,29 +269,186 @@ public class OrderService {
         }
     }
     
-    public List<Order> getAllOrders() {
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getAllOrders() {
         try {
             log.info("Fetching all orders");
-            List<Order> orders = orderRepository.findAll();
-            return orders;
+            List<Order> orders = orderRepository.findAllWithItems();
+            return toResponses(orders);
         } catch (Exception e) {
             log.error("Error fetching all orders", e);
             throw e;
         }
     }
     
-    public List<Order> getOrdersByUserId(Long userId) {
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getOrdersByUserId(Long userId) {
         try {
             log.info("Fetching orders for user ID: {}", userId);
             
-            List<Order> orders = orderRepository.findByUserId(userId);
-            return orders;
+            List<Order> orders = orderRepository.findByUserIdOrderByIdAsc(userId);
+            return toResponses(orders);
         } catch (Exception e) {
             log.error("Error fetching orders by user ID", e);
             throw e;
         }
     }
     
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getOrdersByStatus(Order.OrderStatus status) {
+        try {
+            log.info("Fetching orders with status: {}", status);
+            
+            List<Order> orders = orderRepository.findByStatusOrderByIdAsc(status);
+            return toResponses(orders);
+        } catch (Exception e) {
+            log.error("Error fetching orders by status", e);
+            throw e;
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getOrdersByUserIdAndStatus(Long userId, Order.OrderStatus status) {
+        try {
+            log.info("Fetching orders for user ID: {} with status: {}", userId, status);
+            
+            List<Order> orders = orderRepository.findByUserIdAndStatusOrderByIdAsc(userId, status);
+            return toResponses(orders);
+        } catch (Exception e) {
+            log.error("Error fetching orders by user ID and status", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Returns up to {@code limit} orders with an ID greater than {@code after},
+     * optionally restricted to one user and/or one status, in ID order.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderResponse> getOrdersPage(Long userId, Order.OrderStatus status, long after, int limit) {
+        try {
+            log.info("Fetching orders page after ID: {} with limit: {}", after, limit);
+            
+            List<Long> ids;
+            if (userId != null && status != null) {
+                ids = orderRepository.findIdsByUserIdAndStatusAfter(userId, status, after, Limit.of(limit));
+            } else if (userId != null) {
+                ids = orderRepository.findIdsByUserIdAfter(userId, after, Limit.of(limit));
+            } else if (status != null) {
+                ids = orderRepository.findIdsByStatusAfter(status, after, Limit.of(limit));
+            } else {
+                ids = orderRepository.findIdsAfter(after, Limit.of(limit));
+            }
+            return loadOrders(ids);
+        } catch (Exception e) {
+            log.error("Error fetching orders page", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes every order as newline-delimited JSON. Orders are read in keyset
+     * chunks of {@value #EXPORT_CHUNK_SIZE}, each loaded with its items in one
+     * query, and the persistence context is cleared between chunks so memory
+     * stays flat.
+     */
+    @Transactional(readOnly = true)
+    public void exportOrders(OutputStream outputStream) throws IOException {
+        log.info("Exporting all orders");
+        
+        long after = 0L;
+        List<Long> ids;
+        do {
+            ids = orderRepository.findIdsAfter(after, Limit.of(EXPORT_CHUNK_SIZE));
+            for (OrderResponse order : loadOrders(ids)) {
+                outputStream.write(objectMapper.writeValueAsBytes(order));
+                outputStream.write('\n');
+            }
+            entityManager.clear();
+            if (!ids.isEmpty()) {
+                after = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == EXPORT_CHUNK_SIZE);
+        outputStream.flush();
+    }
+    
+    private List<OrderResponse> loadOrders(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toResponses(orderRepository.findByIdInOrderByIdAsc(ids));
+    }
+    
+    private List<OrderResponse> toResponses(List<Order> orders) {
+        return orders.stream().map(OrderResponse::from).toList();
+    }
+    
+    /**
+     * Persists already-priced orders in one transaction. Every referenced user
+     * is checked with a single user-service call before the transaction starts,
+     * and the import is rejected if any is unknown. Inserts are flushed in
+     * chunks of the JDBC batch size and the persistence context is cleared after
+     * each chunk, so orders and items go out as batched multi-row INSERTs.
+     */
+    public int importOrders(List<ImportOrderRequest> requests) {
+        try {
+            log.info("Importing {} orders", requests.size());
+            
+            verifyImportUsers(requests);
+            int imported = transactionTemplate.execute(status -> persistImportedOrders(requests));
+            
+            log.info("Imported {} orders", imported);
+            return imported;
+        } catch (Exception e) {
+            log.error("Error importing orders", e);
+            throw e;
+        }
+    }
+    
+    private void verifyImportUsers(List<ImportOrderRequest> requests) {
+        Set<Long> userIds = requests.stream().map(ImportOrderRequest::getUserId).collect(Collectors.toSet());
+        Set<Long> verified = userServiceClient.verifyUsers(userIds).block();
+        List<Long> unknown = userIds.stream()
+                .filter(userId -> verified == null || !verified.contains(userId))
+                .sorted()
+                .toList();
+        if (!unknown.isEmpty()) {
+            throw new RuntimeException("Users not found with IDs: " + unknown);
+        }
+    }
+    
+    private int persistImportedOrders(List<ImportOrderRequest> requests) {
+        int imported = 0;
+        for (ImportOrderRequest request : requests) {
+            Order order = new Order();
+            order.setUserId(request.getUserId());
+            order.setStatus(request.getStatus() != null ? request.getStatus() : Order.OrderStatus.CONFIRMED);
+            
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            for (ImportOrderRequest.ImportOrderItem itemRequest : request.getItems()) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setProductId(itemRequest.getProductId());
+                orderItem.setProductName(itemRequest.getProductName());
+                orderItem.setQuantity(itemRequest.getQuantity());
+                orderItem.setPrice(itemRequest.getPrice());
+                orderItem.calculateSubtotal();
+                
+                order.addOrderItem(orderItem);
+                totalAmount = totalAmount.add(orderItem.getSubtotal());
+            }
+            order.setTotalAmount(totalAmount);
+            
+            entityManager.persist(order);
+            if (++imported % importBatchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return imported;
+    }
+    
     @Transactional
     public Order updateOrderStatus(Long id, Order.OrderStatus status) {
         try {
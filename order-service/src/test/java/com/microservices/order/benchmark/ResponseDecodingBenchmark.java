@@ -0,0 +1,162 @@
+package com.microservices.order.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.microservices.order.dto.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding product-service and user-service responses from JSON and
+ * from Smile, with mappers configured the way WebClientConfig configures them.
+ * Payloads carry every field the services send, including the ones the
+ * records ignore. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.microservices.order.benchmark.ResponseDecodingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecodingBenchmark {
+    
+    // Products per list response, as returned by a batched getProducts call
+    private static final int PRODUCT_LIST_SIZE = 100;
+    
+    /** The user-service user as a caller would decode it. */
+    public record UserResponse(
+            Long id,
+            String name,
+            String email,
+            String phoneNumber,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt) {
+    }
+    
+    private ObjectMapper jsonMapper;
+    private ObjectMapper smileMapper;
+    private JavaType productListType;
+    
+    private byte[] productJson;
+    private byte[] productSmile;
+    private byte[] productListJson;
+    private byte[] productListSmile;
+    private byte[] userJson;
+    private byte[] userSmile;
+    
+    @Setup
+    public void setUp() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+        productListType = jsonMapper.getTypeFactory().constructCollectionType(List.class, ProductResponse.class);
+        
+        List<Map<String, Object>> productList = new ArrayList<>();
+        for (long id = 1; id <= PRODUCT_LIST_SIZE; id++) {
+            productList.add(product(id));
+        }
+        Map<String, Object> user = user();
+        
+        productJson = jsonMapper.writeValueAsBytes(productList.get(0));
+        productSmile = smileMapper.writeValueAsBytes(productList.get(0));
+        productListJson = jsonMapper.writeValueAsBytes(productList);
+        productListSmile = smileMapper.writeValueAsBytes(productList);
+        userJson = jsonMapper.writeValueAsBytes(user);
+        userSmile = smileMapper.writeValueAsBytes(user);
+    }
+    
+    @Benchmark
+    public ProductResponse decodeProductJson() throws IOException {
+        return jsonMapper.readValue(productJson, ProductResponse.class);
+    }
+    
+    @Benchmark
+    public ProductResponse decodeProductSmile() throws IOException {
+        return smileMapper.readValue(productSmile, ProductResponse.class);
+    }
+    
+    @Benchmark
+    public List<ProductResponse> decodeProductListJson() throws IOException {
+        return jsonMapper.readValue(productListJson, productListType);
+    }
+    
+    @Benchmark
+    public List<ProductResponse> decodeProductListSmile() throws IOException {
+        return smileMapper.readValue(productListSmile, productListType);
+    }
+    
+    @Benchmark
+    public UserResponse decodeUserJson() throws IOException {
+        return jsonMapper.readValue(userJson, UserResponse.class);
+    }
+    
+    @Benchmark
+    public UserResponse decodeUserSmile() throws IOException {
+        return smileMapper.readValue(userSmile, UserResponse.class);
+    }
+    
+    public static void main(String[] args) throws IOException, RunnerException {
+        ResponseDecodingBenchmark benchmark = new ResponseDecodingBenchmark();
+        benchmark.setUp();
+        System.out.printf("Payload bytes: product JSON %d / Smile %d, product list JSON %d / Smile %d, " +
+                        "user JSON %d / Smile %d%n",
+                benchmark.productJson.length, benchmark.productSmile.length,
+                benchmark.productListJson.length, benchmark.productListSmile.length,
+                benchmark.userJson.length, benchmark.userSmile.length);
+        new Runner(new OptionsBuilder()
+                .include(ResponseDecodingBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+    
+    private static Map<String, Object> product(long id) {
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("id", id);
+        product.put("name", "Product " + id);
+        product.put("description", "A product used to compare response encodings, number " + id);
+        product.put("price", new BigDecimal("1299.99"));
+        product.put("stockQuantity", 250);
+        product.put("category", "Electronics");
+        product.put("hotItem", false);
+        product.put("leasedQuantity", 0);
+        product.put("createdAt", LocalDateTime.of(2024, 1, 15, 9, 30));
+        product.put("updatedAt", LocalDateTime.of(2024, 3, 2, 14, 5, 12));
+        return product;
+    }
+    
+    private static Map<String, Object> user() {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", 42L);
+        user.put("name", "Ayse Yilmaz");
+        user.put("email", "ayse.yilmaz@example.com");
+        user.put("phoneNumber", "+905551234567");
+        user.put("createdAt", LocalDateTime.of(2024, 1, 15, 9, 30));
+        user.put("updatedAt", LocalDateTime.of(2024, 3, 2, 14, 5, 12));
+        return user;
+    }
+}
@@ -0,0 +1,173 @@
+package com.microservices.order.repository;
+
+import com.microservices.order.model.Order;
+import com.microservices.order.model.OrderItem;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order list reads must issue a fixed number of statements however many
+ * orders they return: touching the items of every order may not trigger a
+ * lazy load per order. All orders belong to one user, as for a heavy buyer,
+ * and alternate between two statuses.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OrderRepositoryStatementCountTest {
+    
+    private static final long USER_ID = 1L;
+    private static final int ORDERS = 500;
+    private static final int ITEMS_PER_ORDER = 2;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void seedOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUserId(USER_ID);
+            order.setStatus(i % 2 == 0 ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.PENDING);
+            order.setTotalAmount(BigDecimal.TEN);
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                OrderItem item = new OrderItem();
+                item.setProductId((long) j + 1);
+                item.setProductName("Product " + (j + 1));
+                item.setQuantity(1);
+                item.setPrice(BigDecimal.valueOf(5));
+                order.addOrderItem(item);
+            }
+            orders.add(order);
+        }
+        orderRepository.saveAll(orders);
+        entityManager.flush();
+        entityManager.clear();
+        
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+    
+    @Test
+    void findAllWithItemsLoadsOrdersAndItemsInOneStatement() {
+        List<Order> orders = orderRepository.findAllWithItems();
+        
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(countItems(orders)).isEqualTo(ORDERS * ITEMS_PER_ORDER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void findByUserIdLoadsOrdersAndItemsInOneStatement() {
+        List<Order> orders = orderRepository.findByUserIdOrderByIdAsc(USER_ID);
+        
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(countItems(orders)).isEqualTo(ORDERS * ITEMS_PER_ORDER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void findByStatusLoadsOrdersAndItemsInOneStatement() {
+        List<Order> orders = orderRepository.findByStatusOrderByIdAsc(Order.OrderStatus.CONFIRMED);
+        
+        assertThat(orders).hasSize(ORDERS / 2);
+        assertThat(orders).allMatch(order -> order.getStatus() == Order.OrderStatus.CONFIRMED);
+        assertThat(countItems(orders)).isEqualTo(ORDERS / 2 * ITEMS_PER_ORDER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void keysetPageLoadsOrdersAndItemsInTwoStatements() {
+        int pages = 0;
+        int ordersRead = 0;
+        long after = 0;
+        while (true) {
+            statistics.clear();
+            List<Long> ids = orderRepository.findIdsAfter(after, Limit.of(100));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Order> orders = orderRepository.findByIdInOrderByIdAsc(ids);
+            
+            assertThat(orders).hasSize(ids.size());
+            assertThat(countItems(orders)).isEqualTo(ids.size() * ITEMS_PER_ORDER);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            
+            pages++;
+            ordersRead += orders.size();
+            after = ids.get(ids.size() - 1);
+        }
+        
+        assertThat(pages).isEqualTo(5);
+        assertThat(ordersRead).isEqualTo(ORDERS);
+    }
+    
+    @Test
+    void userKeysetPageLoadsOrdersAndItemsInTwoStatements() {
+        int ordersRead = 0;
+        long after = 0;
+        while (true) {
+            statistics.clear();
+            List<Long> ids = orderRepository.findIdsByUserIdAfter(USER_ID, after, Limit.of(100));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Order> orders = orderRepository.findByIdInOrderByIdAsc(ids);
+            
+            assertThat(orders).allMatch(order -> order.getUserId() == USER_ID);
+            assertThat(countItems(orders)).isEqualTo(ids.size() * ITEMS_PER_ORDER);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            
+            ordersRead += orders.size();
+            after = ids.get(ids.size() - 1);
+        }
+        
+        assertThat(ordersRead).isEqualTo(ORDERS);
+    }
+    
+    @Test
+    void statusKeysetPageLoadsOrdersAndItemsInTwoStatements() {
+        int ordersRead = 0;
+        long after = 0;
+        while (true) {
+            statistics.clear();
+            List<Long> ids = orderRepository.findIdsByStatusAfter(Order.OrderStatus.CONFIRMED, after, Limit.of(100));
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Order> orders = orderRepository.findByIdInOrderByIdAsc(ids);
+            
+            assertThat(orders).allMatch(order -> order.getStatus() == Order.OrderStatus.CONFIRMED);
+            assertThat(countItems(orders)).isEqualTo(ids.size() * ITEMS_PER_ORDER);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            
+            ordersRead += orders.size();
+            after = ids.get(ids.size() - 1);
+        }
+        
+        assertThat(ordersRead).isEqualTo(ORDERS / 2);
+    }
+    
+    private static int countItems(List<Order> orders) {
+        return orders.stream().mapToInt(order -> order.getItems().size()).sum();
+    }
+}
@@ -0,0 +1,118 @@
+package com.microservices.product.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microservices.product.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded read-through caches for product reads. Products are cached by ID;
+ * category lists are cached as ID lists and resolved through the product cache,
+ * so a product change only touches its own entry unless its category changes.
+ * Entries are updated or evicted by {@code ProductService} after each write
+ * commits; the TTL only bounds staleness from writes made outside the service.
+ */
+@Component
+@Slf4j
+public class ProductCache {
+    
+    private final Cache<Long, Optional<Product>> products;
+    private final Cache<String, List<Long>> categories;
+    
+    public ProductCache(MeterRegistry meterRegistry,
+                        @Value("${products.cache.max-size:10000}") long maxSize,
+                        @Value("${products.cache.category-max-size:500}") long categoryMaxSize,
+                        @Value("${products.cache.ttl:10m}") Duration ttl) {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.categories = Caffeine.newBuilder()
+                .maximumSize(categoryMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+        CaffeineCacheMetrics.monitor(meterRegistry, categories, "productCategories");
+    }
+    
+    /**
+     * Returns the cached product, loading it on a miss. Missing products are
+     * cached as empty so repeated lookups of a bad ID do not reach the database.
+     */
+    public Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        return products.get(id, loader);
+    }
+    
+    /**
+     * Returns the products for {@code ids} in the given order, loading all
+     * misses with one call to {@code loader}. Unknown IDs are skipped.
+     */
+    public List<Product> getAll(Collection<Long> ids, Function<Collection<Long>, List<Product>> loader) {
+        Map<Long, Optional<Product>> cached = products.getAll(ids, missing -> {
+            Map<Long, Product> loaded = loader.apply(List.copyOf(missing)).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            Map<Long, Optional<Product>> result = new HashMap<>();
+            for (Long id : missing) {
+                result.put(id, Optional.ofNullable(loaded.get(id)));
+            }
+            return result;
+        });
+        return ids.stream()
+                .map(cached::get)
+                .filter(Objects::nonNull)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+    
+    /** Returns the cached product without loading it; empty if it is not cached or unknown. */
+    public Optional<Product> getIfPresent(Long id) {
+        Optional<Product> cached = products.getIfPresent(id);
+        return cached != null ? cached : Optional.empty();
+    }
+    
+    public List<Long> getCategory(String category, Function<String, List<Long>> loader) {
+        return categories.get(category, loader);
+    }
+    
+    /** Replaces the cached copy of a product that was created or updated. */
+    public void put(Product product) {
+        products.put(product.getId(), Optional.of(product));
+    }
+    
+    public void evict(Long id) {
+        products.invalidate(id);
+    }
+    
+    public void evictAll(Collection<Long> ids) {
+        products.invalidateAll(ids);
+    }
+    
+    public void evictCategory(String category) {
+        if (category != null) {
+            categories.invalidate(category);
+        }
+    }
+    
+    public void clear() {
+        log.info("Clearing product caches");
+        products.invalidateAll();
+        categories.invalidateAll();
+    }
+}
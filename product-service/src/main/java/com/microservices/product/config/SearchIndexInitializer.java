@@ -0,0 +1,36 @@
+package com.microservices.product.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes behind product search. The schema itself is managed by
+ * Hibernate, which cannot express expression or GIN indexes, so they are added
+ * here idempotently on startup. The full-text expression must stay identical
+ * to the one used in {@code ProductRepository.search} for the planner to use it.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexInitializer implements ApplicationRunner {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_name_trgm " +
+                "ON products USING gin (lower(name) gin_trgm_ops)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_fts " +
+                "ON products USING gin (to_tsvector('simple', coalesce(name, '') || ' ' || coalesce(description, '')))");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_category ON products (category, id)");
+        log.info("Product search indexes are in place");
+    }
+}
@@ -1,14 +1,32 @@
 package com.microservices.product.controller;
 
+import com.microservices.product.dto.CollectionVersion;
+import com.microservices.product.dto.ImportResult;
+import com.microservices.product.dto.StockReservationRequest;
+import com.microservices.product.dto.StockReservationResponse;
 import com.microservices.product.model.Product;
+import com.microservices.product.search.ProductSuggestion;
+import com.microservices.product.service.ProductImportService;
 import com.microservices.product.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 
@@ -18,7 +36,14 @@ import java.util.Map;
 @Slf4j
 public class ProductController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 50;
+    
     private final ProductService productService;
+    private final ProductImportService productImportService;
     
     @PostMapping
     public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) {
@@ -27,25 +52,105 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdProduct);
     }
     
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportResult> importProducts(
+            InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException, SQLException {
+        log.info("REST request to import products");
+        ImportResult result = productImportService.importProducts(body, contentType);
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/batch")
+    public ResponseEntity<List<Product>> getProductsByIds(@RequestParam List<Long> ids) {
+        log.info("REST request to get {} products by ID", ids.size());
+        List<Product> products = productService.getProductsByIds(ids);
+        return ResponseEntity.ok(products);
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        log.info("REST request to search products for: {}", query);
+        
+        if (query.isBlank()) {
+            return ResponseEntity.ok(List.of());
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_SEARCH_SIZE);
+        List<Product> products = productService.searchProducts(query.trim(), category, Math.max(page, 0), pageSize);
+        return ResponseEntity.ok(products);
+    }
+    
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<ProductSuggestion>> autocomplete(
+            @RequestParam("q") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<ProductSuggestion> suggestions = productService.autocomplete(
+                prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
+        return ResponseEntity.ok(suggestions);
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
         log.info("REST request to get product by ID: {}", id);
+        
+        // Revalidate against the version alone so a 304 never loads the product
+        LocalDateTime version = productService.getProductVersion(id).orElse(null);
+        if (version != null && request.checkNotModified(productEtag(id, version), toEpochMilli(version))) {
+            return null;
+        }
+        
         Product product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (product.getUpdatedAt() != null) {
+            response.eTag(productEtag(id, product.getUpdatedAt()))
+                    .lastModified(toEpochMilli(product.getUpdatedAt()));
+        }
+        return response.body(product);
     }
     
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts(
-            @RequestParam(required = false) String category) {
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
         log.info("REST request to get all products");
         
-        if (category != null && !category.isEmpty()) {
-            List<Product> products = productService.getProductsByCategory(category);
-            return ResponseEntity.ok(products);
+        if (after != null || limit != null) {
+            int pageSize = limit != null ? Math.min(Math.max(limit, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+            List<Product> products = productService.getProductsPage(category, after != null ? after : 0L, pageSize);
+            
+            // The page is already loaded; its ETag still saves serializing an unchanged page
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(pageEtag(products));
+            if (products.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(products.get(products.size() - 1).getId()));
+            }
+            return response.body(products);
         }
         
-        List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+        CollectionVersion version = productService.getCollectionVersion(category);
+        long lastModified = version.lastModified() != null ? toEpochMilli(version.lastModified()) : -1;
+        if (request.checkNotModified(version.etag(), lastModified)) {
+            return null;
+        }
+        
+        List<Product> products = category != null && !category.isEmpty()
+                ? productService.getProductsByCategory(category)
+                : productService.getAllProducts();
+        return ResponseEntity.ok().eTag(version.etag()).body(products);
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        log.info("REST request to export all products");
+        StreamingResponseBody body = productService::exportProducts;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
     
     @PutMapping("/{id}")
@@ -79,8 +184,47 @@ public class ProductController {
         ));
     }
     
+    @PutMapping("/{id}/hot-item")
+    public ResponseEntity<Void> setHotItem(@PathVariable Long id, @RequestParam boolean enabled) {
+        log.info("REST request to set hot-item mode for product ID: {} to {}", id, enabled);
+        productService.setHotItem(id, enabled);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @PostMapping("/stock/reserve")
+    public ResponseEntity<StockReservationResponse> reserveStock(
+            @Valid @RequestBody StockReservationRequest request) {
+        log.info("REST request to reserve stock for {} items", request.getItems().size());
+        StockReservationResponse response = productService.reserveStock(request.getReservationId(), request.getItems());
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/stock/release")
+    public ResponseEntity<Void> releaseStock(@Valid @RequestBody StockReservationRequest request) {
+        log.info("REST request to release stock for {} items", request.getItems().size());
+        productService.releaseStock(request.getReservationId(), request.getItems());
+        return ResponseEntity.noContent().build();
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Product Service is running!");
     }
+    
+    private static String productEtag(Long id, LocalDateTime version) {
+        Instant instant = version.atZone(ZoneId.systemDefault()).toInstant();
+        return id + "-" + instant.getEpochSecond() + "." + instant.getNano();
+    }
+    
+    private static String pageEtag(List<Product> products) {
+        StringBuilder version = new StringBuilder();
+        for (Product product : products) {
+            version.append(product.getId()).append(':').append(product.getUpdatedAt()).append(',');
+        }
+        return DigestUtils.md5DigestAsHex(version.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static long toEpochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
@@ -0,0 +1,18 @@
+package com.microservices.product.dto;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Aggregate version of a set of products. Adding or removing a product changes
+ * the count and ID sum; updating one moves the latest updatedAt.
+ */
+public record CollectionVersion(Long count, LocalDateTime lastModified, Long idSum) {
+    
+    public String etag() {
+        String version = count + "-" + lastModified + "-" + idSum;
+        return DigestUtils.md5DigestAsHex(version.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,38 @@
+package com.microservices.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportResult {
+    
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private long received;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    
+    /** Validation errors for rejected rows, capped at {@value #MAX_REPORTED_ERRORS} entries. */
+    private List<RowError> errors = new ArrayList<>();
+    
+    public void reject(long line, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
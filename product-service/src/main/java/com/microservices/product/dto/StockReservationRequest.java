@@ -0,0 +1,40 @@
+package com.microservices.product.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequest {
+    
+    /**
+     * Optional caller-chosen key. Retries with the same key reserve only once,
+     * and releasing with it undoes the reservation only if it was committed.
+     */
+    @Size(max = 64, message = "Reservation ID must be at most 64 characters")
+    private String reservationId;
+    
+    @NotEmpty(message = "Reservation items cannot be empty")
+    private List<@Valid Item> items;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+        
+        @NotNull(message = "Quantity is required")
+        @Positive(message = "Quantity must be positive")
+        private Integer quantity;
+    }
+}
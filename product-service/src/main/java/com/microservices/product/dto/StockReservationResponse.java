@@ -0,0 +1,24 @@
+package com.microservices.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationResponse {
+    
+    private boolean success;
+    
+    /** First product whose stock could not be reserved, or null on success. */
+    private Long failedProductId;
+    
+    public static StockReservationResponse reserved() {
+        return new StockReservationResponse(true, null);
+    }
+    
+    public static StockReservationResponse failed(Long productId) {
+        return new StockReservationResponse(false, productId);
+    }
+}
@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "products")
@@ -41,20 +42,32 @@ public class Product {
     @Column(name = "category")
     private String category;
     
+    // Hot items take reservations from in-memory counters; toggled through its own endpoint
+    @Column(name = "hot_item", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "boolean default false")
+    private boolean hotItem;
+    
+    // Units of stock_quantity handed out to in-memory counters and not yet reconciled
+    @Column(name = "leased_quantity", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0")
+    private int leasedQuantity;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Timestamps are kept at the database's microsecond precision so a cached
+    // entity and a freshly loaded row report the same version
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        updatedAt = createdAt;
     }
     
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 }
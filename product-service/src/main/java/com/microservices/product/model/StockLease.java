@@ -0,0 +1,41 @@
+package com.microservices.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * The part of a product's {@code leased_quantity} held by one instance, so
+ * the units of an instance that died can be handed back to the row. Rows are
+ * written through JDBC by {@code StockRepository}.
+ */
+@Entity
+@Table(name = "stock_leases")
+@IdClass(StockLease.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLease {
+    
+    @Id
+    @Column(name = "instance_id", length = 36)
+    private String instanceId;
+    
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String instanceId;
+        private Long productId;
+    }
+}
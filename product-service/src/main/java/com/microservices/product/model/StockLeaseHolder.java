@@ -0,0 +1,29 @@
+package com.microservices.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An instance that may hold hot-item stock leases, kept alive by its heartbeat.
+ * Ledger writes lock the holder row, so deleting it fences the instance off
+ * before its leases are reclaimed. Rows are written through JDBC by
+ * {@code StockRepository}.
+ */
+@Entity
+@Table(name = "stock_lease_holders")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLeaseHolder {
+    
+    @Id
+    @Column(name = "instance_id", length = 36)
+    private String instanceId;
+    
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,41 @@
+package com.microservices.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of hot-item stock movements: negative quantities are
+ * reservations, positive ones releases. Rows are written through JDBC by
+ * {@code StockRepository} and folded into the product row by reconciliation.
+ */
+@Entity
+@Table(name = "stock_ledger", indexes = @Index(name = "idx_stock_ledger_reconciled", columnList = "reconciled, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    // Instance whose lease the movement drew from or returned to
+    @Column(name = "instance_id", length = 36)
+    private String instanceId;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Column(nullable = false)
+    private boolean reconciled;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
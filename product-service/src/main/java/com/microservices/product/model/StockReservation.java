@@ -0,0 +1,37 @@
+package com.microservices.product.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a caller-keyed stock reservation, so retries of a reservation
+ * are not applied twice and a cancellation that overtakes a slow reservation
+ * still wins. Rows are written through JDBC by {@code StockRepository}.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = @Index(name = "idx_stock_reservations_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    
+    @Id
+    @Column(name = "reservation_id", length = 64)
+    private String reservationId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    public enum Status {
+        RESERVED,
+        CANCELLED
+    }
+}
@@ -1,13 +1,66 @@
 package com.microservices.product.repository;
 
+import com.microservices.product.dto.CollectionVersion;
 import com.microservices.product.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategory(String category);
     List<Product> findByNameContainingIgnoreCase(String name);
+    
+    @Query("select p.updatedAt from Product p where p.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+    
+    @Query("select new com.microservices.product.dto.CollectionVersion(count(p), max(p.updatedAt), coalesce(sum(p.id), 0L)) " +
+            "from Product p")
+    CollectionVersion findCatalogVersion();
+    
+    @Query("select new com.microservices.product.dto.CollectionVersion(count(p), max(p.updatedAt), coalesce(sum(p.id), 0L)) " +
+            "from Product p where p.category = :category")
+    CollectionVersion findCategoryVersion(@Param("category") String category);
+    
+    @Query("select p.id from Product p where p.category = :category order by p.id")
+    List<Long> findIdsByCategory(@Param("category") String category);
+    
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+    List<Product> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long after, Limit limit);
+    
+    /**
+     * Ranked search over name and description. Matches come from the full-text
+     * index or, for partial words and typos, the trigram index on lower(name).
+     * Pass an empty category to search all categories.
+     */
+    @Query(value = "SELECT p.* FROM products p " +
+            "WHERE (to_tsvector('simple', coalesce(p.name, '') || ' ' || coalesce(p.description, '')) " +
+            "       @@ plainto_tsquery('simple', :query) " +
+            "    OR lower(p.name) LIKE :pattern " +
+            "    OR lower(p.name) % lower(:query)) " +
+            "AND (:category = '' OR p.category = :category) " +
+            "ORDER BY ts_rank(to_tsvector('simple', coalesce(p.name, '') || ' ' || coalesce(p.description, '')), " +
+            "                 plainto_tsquery('simple', :query)) " +
+            "       + similarity(lower(p.name), lower(:query)) DESC, p.id " +
+            "LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<Product> search(@Param("query") String query,
+                         @Param("pattern") String pattern,
+                         @Param("category") String category,
+                         @Param("limit") int limit,
+                         @Param("offset") long offset);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select p from Product p order by p.id")
+    Stream<Product> streamAll();
 }
@@ -0,0 +1,234 @@
+package com.microservices.product.repository;
+
+import com.microservices.product.dto.StockReservationRequest;
+import com.microservices.product.model.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stock mutations issued as plain JDBC batches so that every item of an order
+ * is checked and decremented by the database in a single round trip.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockRepository {
+    
+    // Units leased to hot-item counters are not available to row-level reservations
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = now() " +
+            "WHERE id = ? AND stock_quantity - leased_quantity >= ?";
+    
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = now() " +
+            "WHERE id = ?";
+    
+    private static final String LEASE_SQL =
+            "UPDATE products p SET leased_quantity = p.leased_quantity + l.amount, updated_at = now() " +
+            "FROM (SELECT id, LEAST(?, stock_quantity - leased_quantity) AS amount " +
+            "      FROM products WHERE id = ? AND hot_item FOR UPDATE) l " +
+            "WHERE p.id = l.id AND l.amount > 0 " +
+            "RETURNING l.amount";
+    
+    private static final String HOLD_LEASE_SQL =
+            "INSERT INTO stock_leases (instance_id, product_id, quantity) VALUES (?, ?, ?) " +
+            "ON CONFLICT (instance_id, product_id) DO UPDATE SET quantity = stock_leases.quantity + EXCLUDED.quantity";
+    
+    // Only units the instance still holds are returned; a reclaimed lease was already handed back
+    private static final String RETURN_LEASE_SQL =
+            "WITH held AS (" +
+            "    UPDATE stock_leases SET quantity = quantity - ? WHERE instance_id = ? AND product_id = ? " +
+            "    RETURNING product_id) " +
+            "UPDATE products p SET leased_quantity = p.leased_quantity - ?, updated_at = now() " +
+            "FROM held WHERE p.id = held.product_id";
+    
+    // Key share lock: heartbeats do not block ledger writes, deleting the holder does
+    private static final String FENCE_SQL =
+            "SELECT instance_id FROM stock_lease_holders WHERE instance_id = ? FOR KEY SHARE";
+    
+    private static final String APPEND_LEDGER_SQL =
+            "INSERT INTO stock_ledger (product_id, instance_id, quantity, reconciled, created_at) " +
+            "VALUES (?, ?, ?, false, now())";
+    
+    // Every ledger movement consumed or returned leased units, so it applies to both columns
+    // and to the lease of the instance that made it
+    private static final String RECONCILE_SQL =
+            "WITH drained AS (" +
+            "    UPDATE stock_ledger SET reconciled = true WHERE reconciled = false " +
+            "    RETURNING product_id, instance_id, quantity), " +
+            "held AS (" +
+            "    UPDATE stock_leases l SET quantity = l.quantity + d.net " +
+            "    FROM (SELECT instance_id, product_id, SUM(quantity) AS net FROM drained " +
+            "          GROUP BY instance_id, product_id) d " +
+            "    WHERE l.instance_id = d.instance_id AND l.product_id = d.product_id), " +
+            "totals AS (SELECT product_id, SUM(quantity) AS net FROM drained GROUP BY product_id) " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity + t.net, " +
+            "    leased_quantity = p.leased_quantity + t.net, updated_at = now() " +
+            "FROM totals t WHERE p.id = t.product_id " +
+            "RETURNING p.id";
+    
+    // Waits for ledger writes of the expired instances in flight, and refuses later ones
+    private static final String EXPIRE_LEASE_HOLDERS_SQL =
+            "DELETE FROM stock_lease_holders WHERE heartbeat_at < now() - make_interval(secs => ?)";
+    
+    private static final String RECLAIM_LEASES_SQL =
+            "WITH reclaimed AS (" +
+            "    DELETE FROM stock_leases l WHERE NOT EXISTS " +
+            "        (SELECT 1 FROM stock_lease_holders h WHERE h.instance_id = l.instance_id) " +
+            "    RETURNING product_id, quantity), " +
+            "totals AS (SELECT product_id, SUM(quantity) AS quantity FROM reclaimed GROUP BY product_id) " +
+            "UPDATE products p SET leased_quantity = p.leased_quantity - t.quantity, updated_at = now() " +
+            "FROM totals t WHERE p.id = t.product_id AND t.quantity <> 0 " +
+            "RETURNING p.id";
+    
+    private static final long RECONCILE_LOCK_KEY = 0x73746f636b4c6564L;
+    
+    private static final String CLAIM_RESERVATION_SQL =
+            "INSERT INTO stock_reservations (reservation_id, status, created_at) VALUES (?, 'RESERVED', now()) " +
+            "ON CONFLICT (reservation_id) DO NOTHING";
+    
+    // Inserts a tombstone when the reservation never committed, so a late one is refused;
+    // returns true only when a committed reservation was cancelled and its stock must be released
+    private static final String CANCEL_RESERVATION_SQL =
+            "INSERT INTO stock_reservations (reservation_id, status, created_at) VALUES (?, 'CANCELLED', now()) " +
+            "ON CONFLICT (reservation_id) DO UPDATE SET status = 'CANCELLED' " +
+            "WHERE stock_reservations.status = 'RESERVED' " +
+            "RETURNING NOT (xmax = 0)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Conditionally decrements stock for each item. The returned array holds the
+     * update count per item; 0 means the product is missing or has too little stock.
+     */
+    public int[] reserve(List<StockReservationRequest.Item> items) {
+        return jdbcTemplate.batchUpdate(RESERVE_SQL, items, items.size(), (ps, item) -> {
+            ps.setInt(1, item.getQuantity());
+            ps.setLong(2, item.getProductId());
+            ps.setInt(3, item.getQuantity());
+        })[0];
+    }
+    
+    public int[] release(List<StockReservationRequest.Item> items) {
+        return jdbcTemplate.batchUpdate(RELEASE_SQL, items, items.size(), (ps, item) -> {
+            ps.setInt(1, item.getQuantity());
+            ps.setLong(2, item.getProductId());
+        })[0];
+    }
+    
+    /**
+     * Moves up to {@code quantity} unleased units of a hot item into the lease
+     * held by {@code instanceId} and returns how many were granted, which may be 0.
+     */
+    public int lease(String instanceId, Long productId, int quantity) {
+        List<Integer> granted = jdbcTemplate.queryForList(LEASE_SQL, Integer.class, quantity, productId);
+        if (granted.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.update(HOLD_LEASE_SQL, instanceId, productId, granted.get(0));
+        return granted.get(0);
+    }
+    
+    /**
+     * Runs in its own transaction because it is also called after the caller's has completed.
+     * Returns false if the instance no longer holds a lease on the product.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean returnLease(String instanceId, Long productId, int quantity) {
+        return jdbcTemplate.update(RETURN_LEASE_SQL, quantity, instanceId, productId, quantity) > 0;
+    }
+    
+    /**
+     * Locks the lease holder row of {@code instanceId} for the caller's transaction,
+     * or fails if that instance's leases were reclaimed, so its leftover counter
+     * units can never be sold. Must precede any product row lock the transaction takes
+     * on hot items, as reclaiming takes the holder row first too.
+     */
+    public void fence(String instanceId) {
+        if (jdbcTemplate.queryForList(FENCE_SQL, String.class, instanceId).isEmpty()) {
+            throw new RuntimeException("Hot-item stock leases of instance " + instanceId + " were reclaimed");
+        }
+    }
+    
+    /**
+     * Appends one ledger row per item with the item quantity multiplied by {@code sign},
+     * drawn from the lease of {@code instanceId}.
+     */
+    public void appendLedger(String instanceId, List<StockReservationRequest.Item> items, int sign) {
+        jdbcTemplate.batchUpdate(APPEND_LEDGER_SQL, items, items.size(), (ps, item) -> {
+            ps.setLong(1, item.getProductId());
+            ps.setString(2, instanceId);
+            ps.setInt(3, sign * item.getQuantity());
+        });
+    }
+    
+    /**
+     * Folds every committed, unreconciled ledger row into its product row, then
+     * hands the leases of instances whose heartbeat is older than
+     * {@code leaseTimeout} back to their rows. Returns the IDs of the products
+     * that changed. Reconciliations of all instances are serialized so a lease
+     * is only reclaimed once every movement against it has been folded in.
+     */
+    @Transactional
+    public List<Long> reconcileLedger(Duration leaseTimeout) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", RECONCILE_LOCK_KEY);
+        jdbcTemplate.update(EXPIRE_LEASE_HOLDERS_SQL, leaseTimeout.toMillis() / 1000.0);
+        
+        Set<Long> changed = new LinkedHashSet<>(jdbcTemplate.queryForList(RECONCILE_SQL, Long.class));
+        changed.addAll(jdbcTemplate.queryForList(RECLAIM_LEASES_SQL, Long.class));
+        return List.copyOf(changed);
+    }
+    
+    public void registerLeaseHolder(String instanceId) {
+        jdbcTemplate.update("INSERT INTO stock_lease_holders (instance_id, heartbeat_at) VALUES (?, now())",
+                instanceId);
+    }
+    
+    /** Returns false if the holder has expired and its leases may have been reclaimed. */
+    public boolean heartbeat(String instanceId) {
+        return jdbcTemplate.update("UPDATE stock_lease_holders SET heartbeat_at = now() WHERE instance_id = ?",
+                instanceId) == 1;
+    }
+    
+    public void removeLeaseHolder(String instanceId) {
+        jdbcTemplate.update("DELETE FROM stock_lease_holders WHERE instance_id = ?", instanceId);
+    }
+    
+    /**
+     * Records a keyed reservation in the caller's transaction. Returns null if
+     * the key is new, otherwise the status it already has.
+     */
+    public StockReservation.Status claimReservation(String reservationId) {
+        if (jdbcTemplate.update(CLAIM_RESERVATION_SQL, reservationId) == 1) {
+            return null;
+        }
+        return StockReservation.Status.valueOf(jdbcTemplate.queryForObject(
+                "SELECT status FROM stock_reservations WHERE reservation_id = ?", String.class, reservationId));
+    }
+    
+    /** Marks a keyed reservation cancelled and returns true if it had reserved stock. */
+    public boolean cancelReservation(String reservationId) {
+        return jdbcTemplate.queryForList(CANCEL_RESERVATION_SQL, Boolean.class, reservationId).contains(true);
+    }
+    
+    public int deleteReservationsBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM stock_reservations WHERE created_at < ?", cutoff);
+    }
+    
+    public List<Long> findHotItemIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM products WHERE hot_item", Long.class);
+    }
+    
+    public int setHotItem(Long productId, boolean hotItem) {
+        return jdbcTemplate.update("UPDATE products SET hot_item = ?, updated_at = now() WHERE id = ?",
+                hotItem, productId);
+    }
+}
@@ -0,0 +1,164 @@
+package com.microservices.product.search;
+
+import com.microservices.product.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory prefix index over product names for autocomplete. Every word of a
+ * name is a key in a sorted map, so a prefix lookup is a range scan that never
+ * touches the database. Loaded on startup and kept current by
+ * {@code ProductService} after each committed create, update or delete.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductAutocompleteIndex implements ApplicationRunner {
+    
+    // Upper bound on the products examined per lookup, so very short prefixes stay cheap
+    private static final int MAX_CANDIDATES = 1000;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    private volatile Index index = new Index();
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+    
+    /**
+     * Reloads the whole index from the database and swaps it in. Changes that
+     * commit while the reload is running may be missed until their next update.
+     */
+    public void rebuild() {
+        Index fresh = new Index();
+        jdbcTemplate.query("SELECT id, name, category FROM products", rs -> {
+            fresh.put(new ProductSuggestion(rs.getLong("id"), rs.getString("name"), rs.getString("category")));
+        });
+        index = fresh;
+        log.info("Autocomplete index built with {} products", fresh.size());
+    }
+    
+    public void put(Product product) {
+        index.put(new ProductSuggestion(product.getId(), product.getName(), product.getCategory()));
+    }
+    
+    public void remove(Long productId) {
+        index.remove(productId);
+    }
+    
+    /**
+     * Returns up to {@code limit} products whose name contains a word starting
+     * with the last word of {@code query} and words starting with each earlier
+     * one. Names that start with the query rank first, then shorter names.
+     */
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        
+        Index current = index;
+        String last = words.get(words.size() - 1);
+        List<String> leading = words.subList(0, words.size() - 1);
+        String normalizedQuery = String.join(" ", words);
+        
+        Set<Long> seen = new HashSet<>();
+        List<ProductSuggestion> candidates = new ArrayList<>();
+        for (Set<Long> ids : current.withPrefix(last).values()) {
+            if (candidates.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            for (Long id : ids) {
+                ProductSuggestion product = current.products.get(id);
+                if (product != null && seen.add(id) && matchesAll(product, leading)) {
+                    candidates.add(product);
+                }
+            }
+        }
+        
+        return candidates.stream()
+                .sorted(Comparator
+                        .comparing((ProductSuggestion p) -> !normalize(p.name()).startsWith(normalizedQuery))
+                        .thenComparingInt(p -> p.name().length())
+                        .thenComparing(ProductSuggestion::name))
+                .limit(limit)
+                .toList();
+    }
+    
+    private static boolean matchesAll(ProductSuggestion product, List<String> prefixes) {
+        if (prefixes.isEmpty()) {
+            return true;
+        }
+        List<String> words = tokenize(product.name());
+        return prefixes.stream().allMatch(prefix -> words.stream().anyMatch(word -> word.startsWith(prefix)));
+    }
+    
+    private static String normalize(String text) {
+        return String.join(" ", tokenize(text));
+    }
+    
+    private static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+    
+    private static final class Index {
+        
+        private final Map<Long, ProductSuggestion> products = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, Set<Long>> words = new ConcurrentSkipListMap<>();
+        
+        synchronized void put(ProductSuggestion product) {
+            remove(product.id());
+            products.put(product.id(), product);
+            for (String word : tokenize(product.name())) {
+                words.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(product.id());
+            }
+        }
+        
+        synchronized void remove(Long productId) {
+            ProductSuggestion previous = products.remove(productId);
+            if (previous == null) {
+                return;
+            }
+            for (String word : tokenize(previous.name())) {
+                Set<Long> ids = words.get(word);
+                if (ids != null) {
+                    ids.remove(productId);
+                    if (ids.isEmpty()) {
+                        words.remove(word);
+                    }
+                }
+            }
+        }
+        
+        NavigableMap<String, Set<Long>> withPrefix(String prefix) {
+            return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+        
+        int size() {
+            return products.size();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.microservices.product.search;
+
+public record ProductSuggestion(Long id, String name, String category) {
+}
@@ -0,0 +1,269 @@
+package com.microservices.product.service;
+
+import com.microservices.product.cache.ProductCache;
+import com.microservices.product.dto.StockReservationRequest;
+import com.microservices.product.repository.StockRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reservations for products flagged as hot items. Instead of decrementing the
+ * product row, each instance leases a chunk of stock from the row into a
+ * {@link StripedStockCounter} and sells from it without locks; each sale is
+ * appended to the stock ledger, and the ledger is periodically folded back
+ * into the row. The row lock is only taken once per lease.
+ *
+ * <p>Stock cannot be oversold: a lease is a conditional update that never
+ * grants more than {@code stock_quantity - leased_quantity}, counters only
+ * hand out leased units, and row-level reservations exclude leased units.
+ *
+ * <p>Leases are recorded per instance, and each instance heartbeats while it
+ * reconciles. Once an instance misses heartbeats for {@code lease-timeout}
+ * another instance reclaims its leases into the rows. Every hot-item ledger
+ * write first locks the writer's holder row, so a reclaimed instance can no
+ * longer sell; when it notices, it drops its counters and rejoins under a new ID.
+ */
+@Service
+@Slf4j
+public class HotStockService implements ApplicationRunner {
+    
+    private final StockRepository stockRepository;
+    private final ProductCache productCache;
+    private final int stripeCount;
+    private final int leaseSize;
+    private final Duration leaseTimeout;
+    
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    
+    // Identifies this instance's leases; replaced when they were reclaimed
+    private volatile String instanceId = UUID.randomUUID().toString();
+    
+    public HotStockService(StockRepository stockRepository,
+                           ProductCache productCache,
+                           @Value("${products.hot-stock.stripes:0}") int stripes,
+                           @Value("${products.hot-stock.lease-size:100}") int leaseSize,
+                           @Value("${products.hot-stock.lease-timeout:30s}") Duration leaseTimeout) {
+        this.stockRepository = stockRepository;
+        this.productCache = productCache;
+        this.stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.leaseSize = leaseSize;
+        this.leaseTimeout = leaseTimeout;
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        stockRepository.registerLeaseHolder(instanceId);
+        refreshHotItems();
+    }
+    
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+    
+    /**
+     * Reserves hot items from the in-memory counters and appends them to the
+     * ledger. Must run inside the caller's transaction: counter units are put
+     * back if it rolls back, and lease surplus is only made available once it
+     * commits. Returns the ID of the first product that could not be reserved,
+     * or null when every item was reserved.
+     */
+    public Long reserve(List<StockReservationRequest.Item> items) {
+        String owner = instanceId;
+        stockRepository.fence(owner);
+        
+        List<Reservation> reservations = new ArrayList<>();
+        for (StockReservationRequest.Item item : items) {
+            Reservation reservation = take(owner, item.getProductId(), item.getQuantity());
+            if (reservation == null) {
+                reservations.forEach(taken -> deposit(owner, taken.productId(), taken.fromCounter()));
+                log.warn("Insufficient hot-item stock for product ID: {}", item.getProductId());
+                return item.getProductId();
+            }
+            reservations.add(reservation);
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (Reservation reservation : reservations) {
+                    if (status == STATUS_COMMITTED) {
+                        deposit(owner, reservation.productId(), reservation.leaseSurplus());
+                    } else {
+                        deposit(owner, reservation.productId(), reservation.fromCounter());
+                    }
+                }
+            }
+        });
+        
+        stockRepository.appendLedger(owner, items, -1);
+        return null;
+    }
+    
+    /** Records released hot-item stock in the ledger and returns it to the counters once committed. */
+    public void release(List<StockReservationRequest.Item> items) {
+        String owner = instanceId;
+        stockRepository.fence(owner);
+        stockRepository.appendLedger(owner, items, 1);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                items.forEach(item -> deposit(owner, item.getProductId(), item.getQuantity()));
+            }
+        });
+    }
+    
+    /**
+     * Heartbeats this instance's leases, folds the ledger into the product rows,
+     * reclaims the leases of expired instances and picks up hot-item flags
+     * changed on other instances.
+     */
+    @Scheduled(fixedDelayString = "${products.hot-stock.reconcile-interval-ms:5000}")
+    public void reconcile() {
+        try {
+            if (!stockRepository.heartbeat(instanceId)) {
+                rejoin();
+            }
+            List<Long> reconciled = stockRepository.reconcileLedger(leaseTimeout);
+            if (!reconciled.isEmpty()) {
+                log.info("Reconciled stock ledger for {} products", reconciled.size());
+                productCache.evictAll(reconciled);
+            }
+            refreshHotItems();
+        } catch (Exception e) {
+            log.error("Error reconciling stock ledger", e);
+        }
+    }
+    
+    /**
+     * Starts counters for newly flagged products and returns the leased units
+     * of products that are no longer hot.
+     */
+    public synchronized void refreshHotItems() {
+        Set<Long> hotItemIds = new HashSet<>(stockRepository.findHotItemIds());
+        for (Long productId : hotItemIds) {
+            if (counters.putIfAbsent(productId, new StripedStockCounter(stripeCount)) == null) {
+                log.info("Product ID: {} switched to hot-item reservations", productId);
+            }
+        }
+        for (Long productId : List.copyOf(counters.keySet())) {
+            if (!hotItemIds.contains(productId)) {
+                StripedStockCounter counter = counters.remove(productId);
+                returnLease(productId, counter);
+                log.info("Product ID: {} switched back to row-level reservations", productId);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public synchronized void returnLeases() {
+        for (Long productId : List.copyOf(counters.keySet())) {
+            returnLease(productId, counters.remove(productId));
+        }
+        stockRepository.removeLeaseHolder(instanceId);
+    }
+    
+    /**
+     * Called when this instance's leases were reclaimed by another instance: the
+     * units left in the counters now belong to the rows again, so they are dropped.
+     */
+    private synchronized void rejoin() {
+        String expiredId = instanceId;
+        instanceId = UUID.randomUUID().toString();
+        counters.clear();
+        stockRepository.registerLeaseHolder(instanceId);
+        log.warn("Hot-item stock leases of instance {} were reclaimed - rejoined as {}", expiredId, instanceId);
+    }
+    
+    /**
+     * Takes {@code quantity} units for a product. The fast path takes them from
+     * one stripe; otherwise whatever the stripes hold is gathered and the rest
+     * is leased from the row in the caller's transaction.
+     */
+    private Reservation take(String owner, Long productId, int quantity) {
+        StripedStockCounter counter = counters.get(productId);
+        if (counter == null) {
+            return null;
+        }
+        if (counter.tryTake(quantity)) {
+            return new Reservation(productId, quantity, 0);
+        }
+        
+        synchronized (counter) {
+            if (counter.tryTake(quantity)) {
+                return new Reservation(productId, quantity, 0);
+            }
+            int gathered = counter.drain(quantity);
+            if (gathered == quantity) {
+                return new Reservation(productId, quantity, 0);
+            }
+            
+            int leased = stockRepository.lease(owner, productId, Math.max(leaseSize, quantity - gathered));
+            if (gathered + leased < quantity) {
+                // The lease rolls back with the failed reservation
+                counter.add(gathered);
+                return null;
+            }
+            // The lease changed the row's leased quantity and version
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    productCache.evict(productId);
+                }
+            });
+            log.info("Leased {} units of product ID: {} into hot-item counters", leased, productId);
+            return new Reservation(productId, gathered, gathered + leased - quantity);
+        }
+    }
+    
+    private void deposit(String owner, Long productId, int quantity) {
+        if (quantity <= 0 || !owner.equals(instanceId)) {
+            // Units of a reclaimed lease are already back in the row
+            return;
+        }
+        StripedStockCounter counter = counters.get(productId);
+        if (counter != null) {
+            counter.add(quantity);
+        } else {
+            returnLease(owner, productId, quantity);
+        }
+    }
+    
+    private void returnLease(Long productId, StripedStockCounter counter) {
+        int remaining;
+        synchronized (counter) {
+            remaining = counter.drain(Integer.MAX_VALUE);
+        }
+        if (remaining > 0) {
+            returnLease(instanceId, productId, remaining);
+        }
+    }
+    
+    private void returnLease(String owner, Long productId, int quantity) {
+        if (stockRepository.returnLease(owner, productId, quantity)) {
+            productCache.evict(productId);
+        }
+    }
+    
+    /**
+     * Units taken for one item: {@code fromCounter} go back to the counter if
+     * the transaction rolls back, {@code leaseSurplus} join it once it commits.
+     */
+    private record Reservation(Long productId, int fromCounter, int leaseSurplus) {
+    }
+}
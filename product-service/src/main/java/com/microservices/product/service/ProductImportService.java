@@ -0,0 +1,379 @@
+package com.microservices.product.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.microservices.product.cache.ProductCache;
+import com.microservices.product.dto.ImportResult;
+import com.microservices.product.model.Product;
+import com.microservices.product.search.ProductAutocompleteIndex;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import. CSV bodies are streamed into a temporary staging table
+ * with COPY FROM STDIN exactly as received, so quoted fields may span lines;
+ * only the header row is parsed here, to map its columns. NDJSON bodies are
+ * parsed one line per record and copied as CSV. Staged rows are then read back
+ * and validated, invalid ones are dropped and reported, and the rest is merged
+ * into products with two set-based statements. Rows with an id update that
+ * product, rows without one are inserted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+    
+    // Numeric columns are staged as text so a bad value rejects its row instead of the whole COPY
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE products_import (line bigserial, id text, name varchar(255), " +
+            "description varchar(1000), price text, stock_quantity text, category varchar(255)%s) " +
+            "ON COMMIT DROP";
+    
+    private static final String COPY_SQL = "COPY products_import (%s) FROM STDIN WITH (FORMAT csv)";
+    
+    private static final String NDJSON_COLUMNS = "line, id, name, description, price, stock_quantity, category";
+    
+    // CSV header names (case and underscores ignored) and the staging columns they load
+    private static final Map<String, String> CSV_COLUMNS = Map.of(
+            "id", "id",
+            "name", "name",
+            "description", "description",
+            "price", "price",
+            "stockquantity", "stock_quantity",
+            "category", "category");
+    
+    private static final String READ_STAGED_SQL =
+            "SELECT line, id, name, description, price, stock_quantity, category FROM products_import ORDER BY line";
+    
+    private static final String DELETE_REJECTED_SQL = "DELETE FROM products_import WHERE line = ANY (?)";
+    
+    private static final String TYPE_STAGED_SQL =
+            "ALTER TABLE products_import " +
+            "ALTER COLUMN id TYPE bigint USING NULLIF(btrim(id), '')::bigint, " +
+            "ALTER COLUMN price TYPE numeric(10,2) USING price::numeric, " +
+            "ALTER COLUMN stock_quantity TYPE integer USING stock_quantity::integer";
+    
+    // Stock may not drop below the units leased to hot-item counters, which are already
+    // promised to reservations; the row lock taken by the update keeps leases from racing it.
+    // Returns every staged update with whether it was applied and the product's leased units,
+    // which are null when no product has the staged id.
+    private static final String MERGE_UPDATE_SQL =
+            "WITH s AS (SELECT DISTINCT ON (id) * FROM products_import WHERE id IS NOT NULL ORDER BY id, line DESC), " +
+            "updated AS (" +
+            "    UPDATE products p SET name = s.name, description = s.description, price = s.price, " +
+            "    stock_quantity = s.stock_quantity, category = s.category, updated_at = now() " +
+            "    FROM s WHERE p.id = s.id AND s.stock_quantity >= p.leased_quantity " +
+            "    RETURNING p.id) " +
+            "SELECT s.line, s.id, u.id IS NOT NULL AS applied, p.leased_quantity " +
+            "FROM s LEFT JOIN updated u ON u.id = s.id LEFT JOIN products p ON p.id = s.id " +
+            "ORDER BY s.line";
+    
+    private static final String MERGE_INSERT_SQL =
+            "INSERT INTO products (name, description, price, stock_quantity, category, created_at, updated_at) " +
+            "SELECT name, description, price, stock_quantity, category, now(), now() " +
+            "FROM products_import WHERE id IS NULL ORDER BY line";
+    
+    private static final int READ_BACK_FETCH_SIZE = 1000;
+    
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ProductAutocompleteIndex autocompleteIndex;
+    private final ProductCache productCache;
+    
+    private final CsvMapper csvMapper = (CsvMapper) new CsvMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    
+    /**
+     * Imports products from a CSV (with a header row naming Product fields) or
+     * NDJSON stream. Invalid rows are skipped and reported; valid rows are
+     * committed together. For CSV, a reported line is the header's line plus
+     * the record's position, which is its line in the file unless an earlier
+     * field spanned lines.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ImportResult importProducts(InputStream body, MediaType contentType) throws IOException, SQLException {
+        log.info("Importing products from {} stream", contentType);
+        
+        ImportResult result = new ImportResult();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            long lineOffset;
+            if (MediaType.parseMediaType("text/csv").isCompatibleWith(contentType)) {
+                lineOffset = copyCsv(connection, body);
+            } else {
+                lineOffset = 0;
+                copyNdjson(connection, body, result);
+            }
+            
+            validateStaged(connection, lineOffset, result);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(TYPE_STAGED_SQL);
+                mergeUpdates(statement, lineOffset, result);
+                result.setInserted(statement.executeUpdate(MERGE_INSERT_SQL));
+            }
+            
+            // Imports touch arbitrarily many rows, so reset the caches and index wholesale
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    productCache.clear();
+                    autocompleteIndex.rebuild();
+                }
+            });
+            
+            log.info("Product import finished - received: {}, inserted: {}, updated: {}, rejected: {}",
+                    result.getReceived(), result.getInserted(), result.getUpdated(), result.getRejected());
+            return result;
+        } catch (Exception e) {
+            log.error("Error importing products", e);
+            throw e;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+    
+    /**
+     * Reads the header row, then hands the rest of the body to COPY untouched.
+     * Returns the header's line number, i.e. the offset of record numbers.
+     */
+    private long copyCsv(Connection connection, InputStream body) throws IOException, SQLException {
+        InputStream in = new BufferedInputStream(body);
+        long headerLine = 0;
+        String header;
+        do {
+            header = readLine(in);
+            headerLine++;
+        } while (header != null && header.isBlank());
+        
+        List<String> columns = header != null ? stagingColumns(header) : List.of();
+        List<String> ignored = columns.stream().filter(column -> column.startsWith("ignored_")).toList();
+        createStaging(connection, ignored.stream().map(column -> ", " + column + " text").collect(Collectors.joining()));
+        if (columns.isEmpty()) {
+            return headerLine;
+        }
+        
+        connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(COPY_SQL.formatted(String.join(", ", columns)), in);
+        return headerLine;
+    }
+    
+    private void copyNdjson(Connection connection, InputStream body, ImportResult result)
+            throws IOException, SQLException {
+        createStaging(connection, "");
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(COPY_SQL.formatted(NDJSON_COLUMNS));
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            ObjectReader rowReader = objectMapper.readerFor(Product.class);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                
+                Product product;
+                try {
+                    product = rowReader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    result.setReceived(result.getReceived() + 1);
+                    result.reject(lineNumber, "Malformed row: " + e.getOriginalMessage());
+                    continue;
+                }
+                
+                byte[] row = toCopyRow(lineNumber, product);
+                copyIn.writeToCopy(row, 0, row.length);
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+    
+    private void createStaging(Connection connection, String extraColumns) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_SQL.formatted(extraColumns));
+        }
+    }
+    
+    /**
+     * Reads every staged row back, rejects the ones that do not make a valid
+     * Product and deletes them from the staging table.
+     */
+    private void validateStaged(Connection connection, long lineOffset, ImportResult result) throws SQLException {
+        List<Long> rejectedLines = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(READ_STAGED_SQL)) {
+            statement.setFetchSize(READ_BACK_FETCH_SIZE);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    result.setReceived(result.getReceived() + 1);
+                    long line = rows.getLong("line");
+                    String error = validate(rows);
+                    if (error != null) {
+                        rejectedLines.add(line);
+                        result.reject(line + lineOffset, error);
+                    }
+                }
+            }
+        }
+        
+        if (!rejectedLines.isEmpty()) {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_REJECTED_SQL)) {
+                statement.setArray(1, connection.createArrayOf("bigint", rejectedLines.toArray()));
+                statement.executeUpdate();
+            }
+        }
+    }
+    
+    /** Returns why the staged row is not a valid product, or null if it is. */
+    private String validate(ResultSet row) throws SQLException {
+        Product product = new Product();
+        product.setName(row.getString("name"));
+        product.setDescription(row.getString("description"));
+        product.setCategory(row.getString("category"));
+        try {
+            String id = trimToNull(row.getString("id"));
+            product.setId(id != null ? Long.valueOf(id) : null);
+            
+            String price = trimToNull(row.getString("price"));
+            product.setPrice(price != null ? new BigDecimal(price) : null);
+            
+            String stockQuantity = trimToNull(row.getString("stock_quantity"));
+            product.setStockQuantity(stockQuantity != null ? Integer.valueOf(stockQuantity) : null);
+        } catch (NumberFormatException e) {
+            return "Malformed row: id, price and stockQuantity must be numbers";
+        }
+        
+        if (product.getPrice() != null && product.getPrice().setScale(2, RoundingMode.HALF_UP).precision() > 10) {
+            return "Price must be less than 100000000";
+        }
+        
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+    
+    private void mergeUpdates(Statement statement, long lineOffset, ImportResult result) throws SQLException {
+        try (ResultSet rows = statement.executeQuery(MERGE_UPDATE_SQL)) {
+            while (rows.next()) {
+                if (rows.getBoolean("applied")) {
+                    result.setUpdated(result.getUpdated() + 1);
+                    continue;
+                }
+                long line = rows.getLong("line") + lineOffset;
+                int leasedQuantity = rows.getInt("leased_quantity");
+                if (rows.wasNull()) {
+                    result.reject(line, "Product not found with ID: " + rows.getLong("id"));
+                } else {
+                    result.reject(line, "Stock quantity is below the " + leasedQuantity +
+                            " units currently leased to hot-item reservations");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Maps the header's columns to staging columns in file order; unknown ones
+     * are loaded into throwaway columns so COPY can still take the row as is.
+     */
+    private List<String> stagingColumns(String headerLine) throws IOException {
+        String[] names = csvMapper.readerFor(String[].class)
+                .with(CsvParser.Feature.WRAP_AS_ARRAY)
+                .readValue(headerLine.startsWith("\uFEFF") ? headerLine.substring(1) : headerLine);
+        
+        Set<String> columns = new LinkedHashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            String key = names[i].trim().replace("_", "").toLowerCase(Locale.ROOT);
+            String column = CSV_COLUMNS.getOrDefault(key, "ignored_" + i);
+            if (!columns.add(column)) {
+                throw new RuntimeException("Duplicate column in CSV header: " + names[i]);
+            }
+        }
+        return List.copyOf(columns);
+    }
+    
+    /** Reads one line without its terminator, or null at the end of the stream. */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+    
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+    
+    private byte[] toCopyRow(long lineNumber, Product product) {
+        return String.join(",",
+                String.valueOf(lineNumber),
+                product.getId() != null ? product.getId().toString() : "",
+                csvField(product.getName()),
+                csvField(product.getDescription()),
+                product.getPrice() != null ? product.getPrice().toPlainString() : "",
+                product.getStockQuantity() != null ? product.getStockQuantity().toString() : "",
+                csvField(product.getCategory())
+        ).concat("\n").getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /** Quotes a value for COPY csv format; null becomes an unquoted empty field, i.e. SQL NULL. */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,13 +1,42 @@
 package com.microservices.product.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.product.cache.ProductCache;
+import com.microservices.product.dto.CollectionVersion;
+import com.microservices.product.dto.StockReservationRequest;
+import com.microservices.product.dto.StockReservationResponse;
 import com.microservices.product.model.Product;
+import com.microservices.product.model.StockReservation;
 import com.microservices.product.repository.ProductRepository;
+import com.microservices.product.repository.StockRepository;
+import com.microservices.product.search.ProductAutocompleteIndex;
+import com.microservices.product.search.ProductSuggestion;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -15,6 +44,15 @@ import java.util.List;
 public class ProductService {
     
     private final ProductRepository productRepository;
+    private final StockRepository stockRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final ProductAutocompleteIndex autocompleteIndex;
+    private final ProductCache productCache;
+    private final HotStockService hotStockService;
+    
+    @Value("${products.stock.reservation-retention:7d}")
+    private Duration reservationRetention;
 
     @Transactional
     public Product createProduct(Product product) {
@@ -22,6 +60,11 @@ public class ProductService {
             log.info("Creating new product: {}", product.getName());
             
             Product savedProduct = productRepository.save(product);
+            afterCommit(() -> {
+                productCache.put(savedProduct);
+                productCache.evictCategory(savedProduct.getCategory());
+                autocompleteIndex.put(savedProduct);
+            });
 
             log.info("Product created successfully with ID: {}", savedProduct.getId());
             return savedProduct;
@@ -36,7 +79,7 @@ public class ProductService {
         try {
             log.info("Fetching product with ID: {}", id);
             
-            return productRepository.findById(id)
+            return productCache.get(id, productRepository::findById)
                     .orElseThrow(() -> new RuntimeException("Product not found with ID: " + id));
         } catch (Exception e) {
             log.error("Error fetching product", e);
@@ -44,6 +87,41 @@ public class ProductService {
         }
     }
     
+    /**
+     * Returns the product's last modification time without loading the
+     * product from the database, for conditional requests.
+     */
+    public Optional<LocalDateTime> getProductVersion(Long id) {
+        Optional<Product> cached = productCache.getIfPresent(id);
+        if (cached.isPresent()) {
+            return Optional.ofNullable(cached.get().getUpdatedAt());
+        }
+        return productRepository.findUpdatedAtById(id);
+    }
+    
+    /**
+     * Returns the aggregate version of one category, or of the whole catalog
+     * when {@code category} is null, for conditional requests.
+     */
+    public CollectionVersion getCollectionVersion(String category) {
+        if (category != null && !category.isEmpty()) {
+            return productRepository.findCategoryVersion(category);
+        }
+        return productRepository.findCatalogVersion();
+    }
+    
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        try {
+            log.info("Fetching {} products by ID", ids.size());
+            
+            List<Product> products = productCache.getAll(ids, productRepository::findAllById);
+            return products;
+        } catch (Exception e) {
+            log.error("Error fetching products by ID", e);
+            throw e;
+        }
+    }
+    
     public List<Product> getAllProducts() {
         try {
             log.info("Fetching all products");
@@ -55,11 +133,74 @@ public class ProductService {
         }
     }
     
+    /**
+     * Returns up to {@code limit} products with an ID greater than {@code after},
+     * optionally restricted to one category, in ID order.
+     */
+    public List<Product> getProductsPage(String category, long after, int limit) {
+        try {
+            log.info("Fetching products page after ID: {} with limit: {}", after, limit);
+            
+            if (category != null && !category.isEmpty()) {
+                return productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(category, after, Limit.of(limit));
+            }
+            return productRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+        } catch (Exception e) {
+            log.error("Error fetching products page", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes every product as newline-delimited JSON, streaming rows from the
+     * database cursor and detaching each one so memory stays flat.
+     */
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream outputStream) throws IOException {
+        log.info("Exporting all products");
+        
+        try (Stream<Product> products = productRepository.streamAll()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                outputStream.write(objectMapper.writeValueAsBytes(product));
+                outputStream.write('\n');
+                entityManager.detach(product);
+            }
+        }
+        outputStream.flush();
+    }
+    
+    /**
+     * Relevance-ranked search over product names and descriptions, optionally
+     * restricted to one category.
+     */
+    public List<Product> searchProducts(String query, String category, int page, int size) {
+        try {
+            log.info("Searching products for: {} in category: {}", query, category);
+            
+            String pattern = "%" + query.toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_") + "%";
+            return productRepository.search(query, pattern, category != null ? category : "",
+                    size, (long) page * size);
+        } catch (Exception e) {
+            log.error("Error searching products", e);
+            throw e;
+        }
+    }
+    
+    public List<ProductSuggestion> autocomplete(String prefix, int limit) {
+        return autocompleteIndex.suggest(prefix, limit);
+    }
+    
     public List<Product> getProductsByCategory(String category) {
         try {
             log.info("Fetching products by category: {}", category);
             
-            List<Product> products = productRepository.findByCategory(category);
+            List<Long> ids = productCache.getCategory(category, productRepository::findIdsByCategory);
+            List<Product> products = productCache.getAll(ids, productRepository::findAllById);
             return products;
         } catch (Exception e) {
             log.error("Error fetching products by category", e);
@@ -73,7 +214,13 @@ public class ProductService {
         try {
             log.info("Updating product with ID: {}", id);
             
-            Product product = getProductById(id);
+            // Load the managed row directly; the cached instance is shared with readers
+            Product product = findProduct(id);
+            String previousCategory = product.getCategory();
+            if (product.isHotItem() && productDetails.getStockQuantity() < product.getLeasedQuantity()) {
+                throw new RuntimeException("Stock for hot item " + id + " cannot be set below its "
+                        + product.getLeasedQuantity() + " leased units");
+            }
             product.setName(productDetails.getName());
             product.setDescription(productDetails.getDescription());
             product.setPrice(productDetails.getPrice());
@@ -81,6 +228,14 @@ public class ProductService {
             product.setCategory(productDetails.getCategory());
             
             Product updatedProduct = productRepository.save(product);
+            afterCommit(() -> {
+                productCache.put(updatedProduct);
+                if (!Objects.equals(previousCategory, updatedProduct.getCategory())) {
+                    productCache.evictCategory(previousCategory);
+                    productCache.evictCategory(updatedProduct.getCategory());
+                }
+                autocompleteIndex.put(updatedProduct);
+            });
             log.info("Product updated successfully with ID: {}", id);
             return updatedProduct;
         } catch (Exception e) {
@@ -95,8 +250,13 @@ public class ProductService {
         try {
             log.info("Deleting product with ID: {}", id);
             
-            Product product = getProductById(id);
+            Product product = findProduct(id);
             productRepository.delete(product);
+            afterCommit(() -> {
+                productCache.evict(id);
+                productCache.evictCategory(product.getCategory());
+                autocompleteIndex.remove(id);
+            });
             
             log.info("Product deleted successfully with ID: {}", id);
         } catch (Exception e) {
@@ -106,21 +266,41 @@ public class ProductService {
         }
     }
     
+    /**
+     * Switches a product between row-level and hot-item reservations. Other
+     * instances pick the change up on their next ledger reconciliation.
+     */
+    @Transactional
+    public void setHotItem(Long id, boolean hotItem) {
+        try {
+            log.info("Setting hot-item mode for product ID: {} to {}", id, hotItem);
+            
+            if (stockRepository.setHotItem(id, hotItem) == 0) {
+                throw new RuntimeException("Product not found with ID: " + id);
+            }
+            afterCommit(() -> {
+                hotStockService.refreshHotItems();
+                productCache.evict(id);
+            });
+        } catch (Exception e) {
+            log.error("Error setting hot-item mode", e);
+            throw e;
+        }
+    }
+    
     @Transactional
     public boolean updateStock(Long productId, Integer quantity) {
         try {
             log.info("Updating stock for product ID: {} with quantity: {}", productId, quantity);
             
-            Product product = getProductById(productId);
+            StockReservationResponse result = reserveStock(null,
+                    List.of(new StockReservationRequest.Item(productId, quantity)));
             
-            if (product.getStockQuantity() < quantity) {
+            if (!result.isSuccess()) {
                 log.warn("Insufficient stock for product ID: {}", productId);
                 return false;
             }
             
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-            productRepository.save(product);
-            
             log.info("Stock updated successfully for product ID: {}", productId);
             return true;
         } catch (Exception e) {
@@ -129,4 +309,131 @@ public class ProductService {
         } finally {
         }
     }
+    
+    /**
+     * Reserves every item or none. With a {@code reservationId} a repeated
+     * request is answered from the first outcome, and a reservation that was
+     * already cancelled is refused.
+     */
+    @Transactional
+    public StockReservationResponse reserveStock(String reservationId, List<StockReservationRequest.Item> items) {
+        try {
+            log.info("Reserving stock for {} items", items.size());
+            
+            if (reservationId != null) {
+                StockReservation.Status existing = stockRepository.claimReservation(reservationId);
+                if (existing == StockReservation.Status.RESERVED) {
+                    log.info("Stock reservation {} already applied", reservationId);
+                    return StockReservationResponse.reserved();
+                }
+                if (existing == StockReservation.Status.CANCELLED) {
+                    log.warn("Stock reservation {} was cancelled before it arrived - refusing it", reservationId);
+                    return StockReservationResponse.failed(null);
+                }
+            }
+            
+            // Lock rows in a stable order so concurrent reservations cannot deadlock
+            List<StockReservationRequest.Item> sortedItems = items.stream()
+                    .sorted(Comparator.comparing(StockReservationRequest.Item::getProductId))
+                    .toList();
+            
+            Map<Boolean, List<StockReservationRequest.Item>> byHotItem = sortedItems.stream()
+                    .collect(Collectors.partitioningBy(item -> hotStockService.isHot(item.getProductId())));
+            List<StockReservationRequest.Item> rowItems = byHotItem.get(false);
+            List<StockReservationRequest.Item> hotItems = byHotItem.get(true);
+            
+            int[] updateCounts = rowItems.isEmpty() ? new int[0] : stockRepository.reserve(rowItems);
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] == 0) {
+                    Long productId = rowItems.get(i).getProductId();
+                    log.warn("Insufficient stock for product ID: {} - rolling back reservation", productId);
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return StockReservationResponse.failed(productId);
+                }
+            }
+            
+            if (!hotItems.isEmpty()) {
+                Long failedProductId = hotStockService.reserve(hotItems);
+                if (failedProductId != null) {
+                    log.warn("Insufficient stock for product ID: {} - rolling back reservation", failedProductId);
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return StockReservationResponse.failed(failedProductId);
+                }
+            }
+            
+            evictAfterCommit(rowItems);
+            log.info("Stock reserved successfully for {} items", items.size());
+            return StockReservationResponse.reserved();
+        } catch (Exception e) {
+            log.error("Error reserving stock", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Returns stock for the items. With a {@code reservationId} stock is only
+     * returned if that reservation committed and was not released before; a
+     * reservation that has not arrived yet is refused when it does.
+     */
+    @Transactional
+    public void releaseStock(String reservationId, List<StockReservationRequest.Item> items) {
+        try {
+            log.info("Releasing stock for {} items", items.size());
+            
+            if (reservationId != null && !stockRepository.cancelReservation(reservationId)) {
+                log.info("Stock reservation {} holds no stock - nothing to release", reservationId);
+                return;
+            }
+            
+            List<StockReservationRequest.Item> sortedItems = items.stream()
+                    .sorted(Comparator.comparing(StockReservationRequest.Item::getProductId))
+                    .toList();
+            Map<Boolean, List<StockReservationRequest.Item>> byHotItem = sortedItems.stream()
+                    .collect(Collectors.partitioningBy(item -> hotStockService.isHot(item.getProductId())));
+            if (!byHotItem.get(false).isEmpty()) {
+                stockRepository.release(byHotItem.get(false));
+                evictAfterCommit(byHotItem.get(false));
+            }
+            if (!byHotItem.get(true).isEmpty()) {
+                hotStockService.release(byHotItem.get(true));
+            }
+            
+            log.info("Stock released successfully for {} items", items.size());
+        } catch (Exception e) {
+            log.error("Error releasing stock", e);
+            throw e;
+        }
+    }
+    
+    /** Forgets reservation keys once no retry or late request can still refer to them. */
+    @Scheduled(fixedDelayString = "${products.stock.reservation-purge-interval-ms:3600000}")
+    public void purgeReservations() {
+        try {
+            int purged = stockRepository.deleteReservationsBefore(LocalDateTime.now().minus(reservationRetention));
+            if (purged > 0) {
+                log.info("Purged {} expired stock reservation keys", purged);
+            }
+        } catch (Exception e) {
+            log.error("Error purging stock reservation keys", e);
+        }
+    }
+    
+    private Product findProduct(Long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found with ID: " + id));
+    }
+    
+    private void evictAfterCommit(List<StockReservationRequest.Item> items) {
+        List<Long> productIds = items.stream().map(StockReservationRequest.Item::getProductId).toList();
+        afterCommit(() -> productCache.evictAll(productIds));
+    }
+    
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
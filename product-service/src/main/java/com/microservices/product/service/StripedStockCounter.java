@@ -0,0 +1,75 @@
+package com.microservices.product.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stock units split across independent stripes so concurrent reservations of
+ * the same product CAS different slots instead of contending on one. A stripe
+ * never goes below zero, so the counter can only hand out units it was given.
+ */
+class StripedStockCounter {
+    
+    private final AtomicIntegerArray stripes;
+    private final int mask;
+    
+    StripedStockCounter(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(stripeCount - 1, 1)) << 1;
+        this.stripes = new AtomicIntegerArray(size);
+        this.mask = size - 1;
+    }
+    
+    /** Takes {@code quantity} units from a single stripe, or nothing if no stripe holds that many. */
+    boolean tryTake(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt() & mask;
+        for (int i = 0; i <= mask; i++) {
+            int index = (start + i) & mask;
+            int available = stripes.get(index);
+            while (available >= quantity) {
+                if (stripes.compareAndSet(index, available, available - quantity)) {
+                    return true;
+                }
+                available = stripes.get(index);
+            }
+        }
+        return false;
+    }
+    
+    /** Takes up to {@code quantity} units across all stripes and returns how many were taken. */
+    int drain(int quantity) {
+        int taken = 0;
+        for (int index = 0; index <= mask && taken < quantity; index++) {
+            int available = stripes.get(index);
+            while (available > 0 && taken < quantity) {
+                int amount = Math.min(available, quantity - taken);
+                if (stripes.compareAndSet(index, available, available - amount)) {
+                    taken += amount;
+                }
+                available = stripes.get(index);
+            }
+        }
+        return taken;
+    }
+    
+    /** Spreads {@code quantity} units evenly across the stripes. */
+    void add(int quantity) {
+        int stripeCount = mask + 1;
+        int share = quantity / stripeCount;
+        int remainder = quantity % stripeCount;
+        int start = ThreadLocalRandom.current().nextInt() & mask;
+        for (int i = 0; i < stripeCount; i++) {
+            int amount = share + (i < remainder ? 1 : 0);
+            if (amount > 0) {
+                stripes.addAndGet((start + i) & mask, amount);
+            }
+        }
+    }
+    
+    int available() {
+        int total = 0;
+        for (int index = 0; index <= mask; index++) {
+            total += stripes.get(index);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,47 @@
+package com.microservices.user.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+/**
+ * Calls to order-service. Every order-service instance keeps its own
+ * in-memory UserExistenceCache, so invalidations are sent to each instance in
+ * {@code services.order.urls}. That list must name the same instances as the
+ * order-service entries of the gateway's discovery list; an instance left out
+ * keeps serving the cached result until its positive TTL runs out.
+ */
+@Component
+@Slf4j
+public class OrderServiceClient {
+    
+    private final List<WebClient> instances;
+    
+    public OrderServiceClient(WebClient.Builder webClientBuilder,
+                              @Value("${services.order.urls}") List<String> orderServiceUrls) {
+        this.instances = orderServiceUrls.stream()
+                .map(url -> webClientBuilder.clone().baseUrl(url.trim()).build())
+                .toList();
+    }
+    
+    /**
+     * Drops every order-service instance's cached verification result for the
+     * given user. Fire-and-forget: a failed call only means that instance's
+     * entry lives until its TTL.
+     */
+    public void invalidateUser(Long userId) {
+        for (WebClient webClient : instances) {
+            webClient.delete()
+                    .uri("/internal/cache/users/{id}", userId)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .subscribe(
+                            response -> log.info("Invalidated order-service cache for user ID: {}", userId),
+                            e -> log.warn("Error invalidating order-service cache for user ID {}: {}",
+                                    userId, e.getMessage()));
+        }
+    }
+}
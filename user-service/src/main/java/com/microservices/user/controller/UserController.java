@@ -1,14 +1,22 @@
 package com.microservices.user.controller;
 
+import com.microservices.user.dto.ImportResult;
 import com.microservices.user.model.User;
+import com.microservices.user.service.UserImportService;
 import com.microservices.user.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
 import java.util.List;
 
 @RestController
@@ -17,7 +25,12 @@ import java.util.List;
 @Slf4j
 public class UserController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    
     private final UserService userService;
+    private final UserImportService userImportService;
     
     @PostMapping
     public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
@@ -26,6 +39,15 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
     }
     
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportResult> importUsers(
+            InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws IOException, SQLException {
+        log.info("REST request to import users");
+        ImportResult result = userImportService.importUsers(body, contentType);
+        return ResponseEntity.ok(result);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
         log.info("REST request to get user by ID: {}", id);
@@ -33,13 +55,55 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
     
+    /**
+     * Body-less existence check: 200 when the user exists, 404 otherwise.
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> userExists(@PathVariable Long id) {
+        boolean exists = userService.userExists(id);
+        return exists ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Resolves many user IDs at once and returns the ones that exist.
+     */
+    @PostMapping("/exists")
+    public ResponseEntity<List<Long>> findExistingUserIds(@RequestBody List<Long> ids) {
+        log.info("REST request to check existence of {} users", ids.size());
+        List<Long> existingIds = userService.findExistingUserIds(ids);
+        return ResponseEntity.ok(existingIds);
+    }
+    
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
+    public ResponseEntity<List<User>> getAllUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
         log.info("REST request to get all users");
+        
+        if (after != null || limit != null) {
+            int pageSize = limit != null ? Math.min(Math.max(limit, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+            List<User> users = userService.getUsersPage(after != null ? after : 0L, pageSize);
+            
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (users.size() == pageSize) {
+                response.header(NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).getId()));
+            }
+            return response.body(users);
+        }
+        
         List<User> users = userService.getAllUsers();
         return ResponseEntity.ok(users);
     }
     
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("REST request to export all users");
+        StreamingResponseBody body = userService::exportUsers;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable Long id, @Valid @RequestBody User user) {
         log.info("REST request to update user with ID: {}", id);
@@ -0,0 +1,205 @@
+package com.microservices.user.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter over registered emails. A negative answer means the
+ * email is definitely not registered, so user creation can skip the existence
+ * query; a positive one may be false and is confirmed against the database.
+ * The unique constraint on email stays authoritative, so an entry missed by a
+ * concurrent rebuild only costs a round trip, never a duplicate.
+ *
+ * <p>Counters are 4 bits wide, packed 16 to a long, so emails can be removed
+ * again. A counter that reaches 15 saturates and is never decremented.
+ */
+@Component
+@Slf4j
+public class RegisteredEmailFilter implements ApplicationRunner {
+    
+    private static final int COUNTERS_PER_WORD = 16;
+    private static final long COUNTER_MASK = 0xFL;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final long expectedEmails;
+    private final double targetFalsePositiveRate;
+    
+    private final Counter definitelyAbsent;
+    private final Counter possiblyPresent;
+    private final Counter falsePositives;
+    
+    private volatile Filter filter;
+    
+    public RegisteredEmailFilter(JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${users.email-filter.expected-emails:1000000}") long expectedEmails,
+                                 @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedEmails = expectedEmails;
+        this.targetFalsePositiveRate = falsePositiveRate;
+        this.filter = new Filter(expectedEmails, falsePositiveRate);
+        
+        this.definitelyAbsent = Counter.builder("users.email_filter.checks")
+                .description("Email filter lookups by outcome")
+                .tag("result", "absent")
+                .register(meterRegistry);
+        this.possiblyPresent = Counter.builder("users.email_filter.checks")
+                .description("Email filter lookups by outcome")
+                .tag("result", "possibly_present")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("users.email_filter.false_positives")
+                .description("Possibly-present answers the database showed to be unregistered")
+                .register(meterRegistry);
+        Gauge.builder("users.email_filter.memory", this, f -> f.filter.memoryBytes())
+                .description("Memory held by the email filter counters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.email_filter.entries", this, f -> f.filter.entries.get())
+                .description("Emails currently in the email filter")
+                .register(meterRegistry);
+        Gauge.builder("users.email_filter.false_positive_rate", this, f -> f.filter.expectedFalsePositiveRate())
+                .description("Estimated false-positive rate at the current number of entries")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+    
+    /** Reloads the filter from every registered email and swaps it in. */
+    public void rebuild() {
+        Filter fresh = new Filter(expectedEmails, targetFalsePositiveRate);
+        jdbcTemplate.query("SELECT email FROM users", rs -> {
+            fresh.add(rs.getString("email"));
+        });
+        filter = fresh;
+        log.info("Email filter built with {} emails using {} bytes", fresh.entries.get(), fresh.memoryBytes());
+    }
+    
+    public boolean mightContain(String email) {
+        boolean result = filter.mightContain(email);
+        (result ? possiblyPresent : definitelyAbsent).increment();
+        return result;
+    }
+    
+    /** Records that a possibly-present email turned out not to be registered. */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+    
+    public void add(String email) {
+        filter.add(email);
+    }
+    
+    public void remove(String email) {
+        filter.remove(email);
+    }
+    
+    private static final class Filter {
+        
+        private final AtomicLongArray words;
+        private final long counters;
+        private final int hashes;
+        private final AtomicLong entries = new AtomicLong();
+        
+        Filter(long expectedEmails, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long optimalCounters = (long) Math.ceil(-expectedEmails * Math.log(falsePositiveRate) / (ln2 * ln2));
+            int wordCount = (int) Math.max(1, (optimalCounters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+            this.words = new AtomicLongArray(wordCount);
+            this.counters = (long) wordCount * COUNTERS_PER_WORD;
+            this.hashes = Math.max(1, (int) Math.round((double) counters / expectedEmails * ln2));
+        }
+        
+        boolean mightContain(String email) {
+            long hash = hash(email);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                if (counter(Math.floorMod(h1 + i * h2, counters)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        void add(String email) {
+            updateCounters(email, 1);
+            entries.incrementAndGet();
+        }
+        
+        void remove(String email) {
+            if (updateCounters(email, -1)) {
+                entries.decrementAndGet();
+            }
+        }
+        
+        /** Applies {@code delta} to every counter of the email; returns false if the email was absent. */
+        private boolean updateCounters(String email, int delta) {
+            if (delta < 0 && !mightContain(email)) {
+                return false;
+            }
+            long hash = hash(email);
+            long h1 = mix(hash);
+            long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long index = Math.floorMod(h1 + i * h2, counters);
+                int word = (int) (index / COUNTERS_PER_WORD);
+                int shift = (int) (index % COUNTERS_PER_WORD) * 4;
+                while (true) {
+                    long current = words.get(word);
+                    long value = (current >>> shift) & COUNTER_MASK;
+                    if (value == COUNTER_MASK || (delta < 0 && value == 0)) {
+                        break;
+                    }
+                    long updated = (current & ~(COUNTER_MASK << shift)) | ((value + delta) << shift);
+                    if (words.compareAndSet(word, current, updated)) {
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        private long counter(long index) {
+            long word = words.get((int) (index / COUNTERS_PER_WORD));
+            return (word >>> ((index % COUNTERS_PER_WORD) * 4)) & COUNTER_MASK;
+        }
+        
+        long memoryBytes() {
+            return (long) words.length() * Long.BYTES;
+        }
+        
+        double expectedFalsePositiveRate() {
+            double fill = 1 - Math.exp(-(double) hashes * entries.get() / counters);
+            return Math.pow(fill, hashes);
+        }
+        
+        private static long hash(String email) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+        
+        private static long mix(long value) {
+            value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+            value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return value ^ (value >>> 33);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.microservices.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.microservices.user.dto.ImportResult;
+import com.microservices.user.model.User;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user import. CSV bodies are streamed into a temporary staging table
+ * with COPY FROM STDIN exactly as received, so quoted fields may span lines;
+ * only the header row is parsed here, to map its columns. NDJSON bodies are
+ * parsed one line per record and copied as CSV. Staged rows are then read back
+ * and validated, invalid ones are dropped and reported, and the rest is
+ * upserted into users keyed by email.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportService {
+    
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE users_import (line bigserial, name varchar(255), email varchar(255), " +
+            "phone_number varchar(255)%s) ON COMMIT DROP";
+    
+    private static final String COPY_SQL = "COPY users_import (%s) FROM STDIN WITH (FORMAT csv)";
+    
+    private static final String NDJSON_COLUMNS = "line, name, email, phone_number";
+    
+    // CSV header names (case and underscores ignored) and the staging columns they load
+    private static final Map<String, String> CSV_COLUMNS = Map.of(
+            "name", "name",
+            "email", "email",
+            "phonenumber", "phone_number");
+    
+    private static final String READ_STAGED_SQL =
+            "SELECT line, name, email, phone_number FROM users_import ORDER BY line";
+    
+    private static final String DELETE_REJECTED_SQL = "DELETE FROM users_import WHERE line = ANY (?)";
+    
+    // The last row for a given email wins; xmax = 0 identifies freshly inserted rows
+    private static final String MERGE_SQL =
+            "INSERT INTO users (name, email, phone_number, created_at, updated_at) " +
+            "SELECT name, email, phone_number, now(), now() FROM " +
+            "(SELECT DISTINCT ON (email) * FROM users_import ORDER BY email, line DESC) s " +
+            "ON CONFLICT (email) DO UPDATE SET name = EXCLUDED.name, phone_number = EXCLUDED.phone_number, " +
+            "updated_at = now() " +
+            "RETURNING (xmax = 0) AS inserted";
+    
+    private static final int READ_BACK_FETCH_SIZE = 1000;
+    
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final RegisteredEmailFilter registeredEmailFilter;
+    
+    private final CsvMapper csvMapper = (CsvMapper) new CsvMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    
+    /**
+     * Imports users from a CSV (with a header row naming User fields) or NDJSON
+     * stream. Invalid rows are skipped and reported; valid rows are committed together.
+     * For CSV, a reported line is the header's line plus the record's position,
+     * which is its line in the file unless an earlier field spanned lines.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ImportResult importUsers(InputStream body, MediaType contentType) throws IOException, SQLException {
+        log.info("Importing users from {} stream", contentType);
+        
+        ImportResult result = new ImportResult();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            long lineOffset;
+            if (MediaType.parseMediaType("text/csv").isCompatibleWith(contentType)) {
+                lineOffset = copyCsv(connection, body);
+            } else {
+                lineOffset = 0;
+                copyNdjson(connection, body, result);
+            }
+            
+            validateStaged(connection, lineOffset, result);
+            try (Statement statement = connection.createStatement();
+                 ResultSet merged = statement.executeQuery(MERGE_SQL)) {
+                while (merged.next()) {
+                    if (merged.getBoolean("inserted")) {
+                        result.setInserted(result.getInserted() + 1);
+                    } else {
+                        result.setUpdated(result.getUpdated() + 1);
+                    }
+                }
+            }
+            
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registeredEmailFilter.rebuild();
+                }
+            });
+            
+            log.info("User import finished - received: {}, inserted: {}, updated: {}, rejected: {}",
+                    result.getReceived(), result.getInserted(), result.getUpdated(), result.getRejected());
+            return result;
+        } catch (Exception e) {
+            log.error("Error importing users", e);
+            throw e;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+    
+    /**
+     * Reads the header row, then hands the rest of the body to COPY untouched.
+     * Returns the header's line number, i.e. the offset of record numbers.
+     */
+    private long copyCsv(Connection connection, InputStream body) throws IOException, SQLException {
+        InputStream in = new BufferedInputStream(body);
+        long headerLine = 0;
+        String header;
+        do {
+            header = readLine(in);
+            headerLine++;
+        } while (header != null && header.isBlank());
+        
+        List<String> columns = header != null ? stagingColumns(header) : List.of();
+        List<String> ignored = columns.stream().filter(column -> column.startsWith("ignored_")).toList();
+        createStaging(connection, ignored.stream().map(column -> ", " + column + " text").collect(Collectors.joining()));
+        if (columns.isEmpty()) {
+            return headerLine;
+        }
+        
+        connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(COPY_SQL.formatted(String.join(", ", columns)), in);
+        return headerLine;
+    }
+    
+    private void copyNdjson(Connection connection, InputStream body, ImportResult result)
+            throws IOException, SQLException {
+        createStaging(connection, "");
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(COPY_SQL.formatted(NDJSON_COLUMNS));
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            ObjectReader rowReader = objectMapper.readerFor(User.class);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                
+                User user;
+                try {
+                    user = rowReader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    result.setReceived(result.getReceived() + 1);
+                    result.reject(lineNumber, "Malformed row: " + e.getOriginalMessage());
+                    continue;
+                }
+                
+                byte[] row = toCopyRow(lineNumber, user);
+                copyIn.writeToCopy(row, 0, row.length);
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+    
+    private void createStaging(Connection connection, String extraColumns) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_SQL.formatted(extraColumns));
+        }
+    }
+    
+    /**
+     * Reads every staged row back, rejects the ones that do not make a valid
+     * User and deletes them from the staging table.
+     */
+    private void validateStaged(Connection connection, long lineOffset, ImportResult result) throws SQLException {
+        List<Long> rejectedLines = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(READ_STAGED_SQL)) {
+            statement.setFetchSize(READ_BACK_FETCH_SIZE);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    result.setReceived(result.getReceived() + 1);
+                    User user = new User();
+                    user.setName(rows.getString("name"));
+                    user.setEmail(rows.getString("email"));
+                    user.setPhoneNumber(rows.getString("phone_number"));
+                    
+                    Set<ConstraintViolation<User>> violations = validator.validate(user);
+                    if (!violations.isEmpty()) {
+                        long line = rows.getLong("line");
+                        rejectedLines.add(line);
+                        result.reject(line + lineOffset, violations.stream()
+                                .map(ConstraintViolation::getMessage)
+                                .sorted()
+                                .collect(Collectors.joining("; ")));
+                    }
+                }
+            }
+        }
+        
+        if (!rejectedLines.isEmpty()) {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_REJECTED_SQL)) {
+                statement.setArray(1, connection.createArrayOf("bigint", rejectedLines.toArray()));
+                statement.executeUpdate();
+            }
+        }
+    }
+    
+    /**
+     * Maps the header's columns to staging columns in file order; unknown ones
+     * are loaded into throwaway columns so COPY can still take the row as is.
+     */
+    private List<String> stagingColumns(String headerLine) throws IOException {
+        String[] names = csvMapper.readerFor(String[].class)
+                .with(CsvParser.Feature.WRAP_AS_ARRAY)
+                .readValue(headerLine.startsWith("\uFEFF") ? headerLine.substring(1) : headerLine);
+        
+        Set<String> columns = new LinkedHashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            String key = names[i].trim().replace("_", "").toLowerCase(Locale.ROOT);
+            String column = CSV_COLUMNS.getOrDefault(key, "ignored_" + i);
+            if (!columns.add(column)) {
+                throw new RuntimeException("Duplicate column in CSV header: " + names[i]);
+            }
+        }
+        return List.copyOf(columns);
+    }
+    
+    /** Reads one line without its terminator, or null at the end of the stream. */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+    
+    private byte[] toCopyRow(long lineNumber, User user) {
+        return String.join(",",
+                String.valueOf(lineNumber),
+                csvField(user.getName()),
+                csvField(user.getEmail()),
+                csvField(user.getPhoneNumber())
+        ).concat("\n").getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /** Quotes a value for COPY csv format; null becomes an unquoted empty field, i.e. SQL NULL. */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,13 +1,25 @@
 package com.microservices.user.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservices.user.client.OrderServiceClient;
 import com.microservices.user.model.User;
 import com.microservices.user.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -15,17 +27,27 @@ import java.util.List;
 public class UserService {
     
     private final UserRepository userRepository;
+    private final OrderServiceClient orderServiceClient;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final RegisteredEmailFilter registeredEmailFilter;
 
     @Transactional
     public User createUser(User user) {
         try {
             log.info("Creating new user with email: {}", user.getEmail());
             
-            if (userRepository.existsByEmail(user.getEmail())) {
-                throw new RuntimeException("User with email " + user.getEmail() + " already exists");
+            // Most new emails are ruled out by the filter; only possible matches cost a query
+            if (registeredEmailFilter.mightContain(user.getEmail())) {
+                if (userRepository.existsByEmail(user.getEmail())) {
+                    throw new RuntimeException("User with email " + user.getEmail() + " already exists");
+                }
+                registeredEmailFilter.recordFalsePositive();
             }
             
-            User savedUser = userRepository.save(user);
+            User savedUser = saveUnique(user);
+            invalidateOrderCacheAfterCommit(savedUser.getId());
+            afterCommit(() -> registeredEmailFilter.add(savedUser.getEmail()));
 
             log.info("User created successfully with ID: {}", savedUser.getId());
             return savedUser;
@@ -48,6 +70,29 @@ public class UserService {
         }
     }
     
+    public boolean userExists(Long id) {
+        try {
+            return userRepository.existsById(id);
+        } catch (Exception e) {
+            log.error("Error checking user existence", e);
+            throw e;
+        }
+    }
+    
+    public List<Long> findExistingUserIds(Collection<Long> ids) {
+        try {
+            log.info("Checking existence of {} users", ids.size());
+            
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            return userRepository.findExistingIds(ids);
+        } catch (Exception e) {
+            log.error("Error checking user existence", e);
+            throw e;
+        }
+    }
+    
     public List<User> getAllUsers() {
         try {
             log.info("Fetching all users");
@@ -59,17 +104,57 @@ public class UserService {
         }
     }
     
+    /**
+     * Returns up to {@code limit} users with an ID greater than {@code after}, in ID order.
+     */
+    public List<User> getUsersPage(long after, int limit) {
+        try {
+            log.info("Fetching users page after ID: {} with limit: {}", after, limit);
+            return userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
+        } catch (Exception e) {
+            log.error("Error fetching users page", e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Writes every user as newline-delimited JSON, streaming rows from the
+     * database cursor and detaching each one so memory stays flat.
+     */
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream outputStream) throws IOException {
+        log.info("Exporting all users");
+        
+        try (Stream<User> users = userRepository.streamAll()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                outputStream.write(objectMapper.writeValueAsBytes(user));
+                outputStream.write('\n');
+                entityManager.detach(user);
+            }
+        }
+        outputStream.flush();
+    }
+    
     @Transactional
     public User updateUser(Long id, User userDetails) {
         try {
             log.info("Updating user with ID: {}", id);
             
             User user = getUserById(id);
+            String previousEmail = user.getEmail();
             user.setName(userDetails.getName());
             user.setEmail(userDetails.getEmail());
             user.setPhoneNumber(userDetails.getPhoneNumber());
             
-            User updatedUser = userRepository.save(user);
+            User updatedUser = saveUnique(user);
+            if (!previousEmail.equals(updatedUser.getEmail())) {
+                afterCommit(() -> {
+                    registeredEmailFilter.remove(previousEmail);
+                    registeredEmailFilter.add(updatedUser.getEmail());
+                });
+            }
             log.info("User updated successfully with ID: {}", id);
             return updatedUser;
         } catch (Exception e) {
@@ -85,6 +170,8 @@ public class UserService {
             
             User user = getUserById(id);
             userRepository.delete(user);
+            invalidateOrderCacheAfterCommit(id);
+            afterCommit(() -> registeredEmailFilter.remove(user.getEmail()));
             
             log.info("User deleted successfully with ID: {}", id);
         } catch (Exception e) {
@@ -92,4 +179,29 @@ public class UserService {
             throw e;
         }
     }
+    
+    /**
+     * Flushes the insert or update immediately so a duplicate email surfaces
+     * here, from the unique constraint, as the usual conflict error.
+     */
+    private User saveUnique(User user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("User with email " + user.getEmail() + " already exists", e);
+        }
+    }
+    
+    private void invalidateOrderCacheAfterCommit(Long userId) {
+        afterCommit(() -> orderServiceClient.invalidateUser(userId));
+    }
+    
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }